@@ -23,6 +23,7 @@ import com.flipkart.chatheads.ui.ChatHeadListener;
 import com.flipkart.chatheads.ui.ChatHeadViewAdapter;
 import com.flipkart.chatheads.ui.MaximizedArrangement;
 import com.flipkart.chatheads.ui.MinimizedArrangement;
+import com.flipkart.chatheads.ui.container.ActivityContainer;
 import com.flipkart.chatheads.ui.container.DefaultChatHeadManager;
 import com.flipkart.chatheads.ui.container.WindowManagerContainer;
 import com.flipkart.circularImageView.CircularDrawable;
@@ -241,13 +242,30 @@ public class ChatHeadService extends Service {
         }
     }
 
+    /**
+     * Moves the chat heads into the activity while it is visible, no overlay window needed. The
+     * overlay windows are only hidden meanwhile.
+     */
+    public void attachToActivity(ActivityContainer activityContainer) {
+        chatHeadManager.setChatHeadContainer(activityContainer);
+    }
+
+    public void detachFromActivity() {
+        chatHeadManager.setChatHeadContainer(windowManagerContainer);
+    }
+
     public void updateBadgeCount() {
         chatHeadManager.reloadDrawable(String.valueOf(1));
     }
 
     @Override
     public void onDestroy() {
-        windowManagerContainer.destroy();
+        boolean attachedToActivity = chatHeadManager.getChatHeadContainer() != windowManagerContainer;
+        chatHeadManager.destroy();
+        if (attachedToActivity) {
+            // only detached, the manager destroyed the activity container
+            windowManagerContainer.destroy();
+        }
         chatHeadManager = null;
         super.onDestroy();
     }
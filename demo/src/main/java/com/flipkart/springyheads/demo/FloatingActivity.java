@@ -10,6 +10,7 @@ import android.os.IBinder;
 import android.view.View;
 import android.widget.Button;
 import android.widget.Toast;
+import com.flipkart.chatheads.ui.container.ActivityContainer;
 
 /**
  * Created by kiran.kumar on 06/02/16.
@@ -24,6 +25,10 @@ public class FloatingActivity extends Activity implements View.OnClickListener {
 
     private ChatHeadService chatHeadService;
     private boolean bound;
+    /**
+     * Reused on every resume, so that the overlay windows are only hidden while it is shown
+     */
+    private ActivityContainer activityContainer;
     /**
      * Defines callbacks for service binding, passed to bindService()
      */
@@ -37,6 +42,7 @@ public class FloatingActivity extends Activity implements View.OnClickListener {
             chatHeadService = binder.getService();
             bound = true;
             chatHeadService.minimize();
+            chatHeadService.attachToActivity(activityContainer);
         }
 
         @Override
@@ -48,12 +54,36 @@ public class FloatingActivity extends Activity implements View.OnClickListener {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        activityContainer = new ActivityContainer(this);
         Intent intent = new Intent(this, ChatHeadService.class);
         startService(intent);
         bindService(intent, mConnection, Context.BIND_AUTO_CREATE);
         setupButtons();
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (bound) {
+            chatHeadService.attachToActivity(activityContainer);
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        if (bound) {
+            chatHeadService.detachFromActivity();
+        }
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        // detached from the manager in onPause
+        activityContainer.destroy();
+        super.onDestroy();
+    }
+
     private void setupButtons() {
         setContentView(R.layout.activity_main);
 
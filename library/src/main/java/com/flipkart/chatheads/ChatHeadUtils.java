@@ -3,7 +3,6 @@ package com.flipkart.chatheads;
 import android.content.Context;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
-import android.view.WindowManager;
 
 /**
  * Created by kirankumar on 11/02/15.
@@ -26,10 +25,7 @@ public class ChatHeadUtils {
     }
 
     public static int dpToPx(Context context, int dp) {
-        DisplayMetrics metrics = new DisplayMetrics();
-        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
-        windowManager.getDefaultDisplay().getMetrics(metrics);
-        return dpToPx(metrics, dp);
+        return DisplayMetricsCache.get(context).dpToPx(dp);
     }
 
     public static int pxToDp(Context context, int px) {
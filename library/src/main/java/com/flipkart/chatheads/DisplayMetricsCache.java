@@ -0,0 +1,157 @@
+package com.flipkart.chatheads;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.Display;
+import android.view.WindowManager;
+
+/**
+ * Keeps the {@link DisplayMetrics} of a display so that callers don't have to query the window
+ * manager every time. The metrics are refreshed when the display changes (through a
+ * {@link DisplayManager.DisplayListener} on API 17+) or when {@link #invalidate()} is called,
+ * e.g. on a configuration change.
+ * <p>
+ * dp to px conversions are cached as well and the ones used by the library are computed up front.
+ * Must be used from the main thread.
+ * <p>
+ * Caches live as long as the process: there is one per display, shared by every chat head
+ * manager, and its display listener is never unregistered. The listener only holds the
+ * application context.
+ */
+public class DisplayMetricsCache {
+
+    /**
+     * dp values used by the library, converted on every refresh
+     */
+    private static final int[] LIBRARY_DP_VALUES = {1, 3, 5, 10, 20, 50, 56 * 2, 62, 110};
+
+    private static final SparseArray<DisplayMetricsCache> caches = new SparseArray<>(1);
+    private static DisplayMetricsCache defaultDisplayCache;
+
+    private final WindowManager windowManager;
+    private final int displayId;
+    private final DisplayMetrics displayMetrics = new DisplayMetrics();
+    private final SparseIntArray pxForDp = new SparseIntArray(LIBRARY_DP_VALUES.length);
+    private boolean valid;
+    private DisplayManager displayManager;
+
+    private DisplayMetricsCache(Context context, int displayId) {
+        this.windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        this.displayId = displayId;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            registerDisplayListener(context);
+        }
+    }
+
+    /**
+     * @return the cache for the default display of the context
+     */
+    public static DisplayMetricsCache get(Context context) {
+        if (defaultDisplayCache == null) {
+            WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+            defaultDisplayCache = get(context, windowManager.getDefaultDisplay().getDisplayId());
+        }
+        return defaultDisplayCache;
+    }
+
+    /**
+     * @return the cache for the given display
+     */
+    public static DisplayMetricsCache get(Context context, int displayId) {
+        DisplayMetricsCache cache = caches.get(displayId);
+        if (cache == null) {
+            cache = new DisplayMetricsCache(context.getApplicationContext(), displayId);
+            caches.put(displayId, cache);
+        }
+        return cache;
+    }
+
+    public int getDisplayId() {
+        return displayId;
+    }
+
+    /**
+     * @return the cached metrics. The same instance is returned every time and updated in place,
+     * so it should not be modified by the caller.
+     */
+    public DisplayMetrics getDisplayMetrics() {
+        ensureValid();
+        return displayMetrics;
+    }
+
+    public int dpToPx(int dp) {
+        ensureValid();
+        int px = pxForDp.get(dp, -1);
+        if (px == -1) {
+            px = ChatHeadUtils.dpToPx(displayMetrics, dp);
+            pxForDp.put(dp, px);
+        }
+        return px;
+    }
+
+    /**
+     * Forces the metrics to be read again on next access.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    private void ensureValid() {
+        if (valid) return;
+        Display display = findDisplay();
+        display.getMetrics(displayMetrics);
+        pxForDp.clear();
+        for (int dp : LIBRARY_DP_VALUES) {
+            pxForDp.put(dp, ChatHeadUtils.dpToPx(displayMetrics, dp));
+        }
+        valid = true;
+    }
+
+    private Display findDisplay() {
+        Display defaultDisplay = windowManager.getDefaultDisplay();
+        if (defaultDisplay.getDisplayId() != displayId && displayManager != null
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            Display display = displayManager.getDisplay(displayId);
+            if (display != null) {
+                return display;
+            }
+        }
+        return defaultDisplay;
+    }
+
+    /**
+     * Registered for the lifetime of the process, see the class documentation
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private void registerDisplayListener(Context context) {
+        displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+        if (displayManager == null) return;
+        DisplayManager.DisplayListener listener = new DisplayManager.DisplayListener() {
+            @Override
+            public void onDisplayAdded(int displayId) {
+            }
+
+            @Override
+            public void onDisplayRemoved(int displayId) {
+                if (displayId == DisplayMetricsCache.this.displayId) {
+                    invalidate();
+                }
+            }
+
+            @Override
+            public void onDisplayChanged(int displayId) {
+                if (displayId == DisplayMetricsCache.this.displayId) {
+                    invalidate();
+                }
+            }
+        };
+        displayManager.registerDisplayListener(listener, new Handler(Looper.getMainLooper()));
+    }
+}
@@ -8,14 +8,16 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
-import android.view.VelocityTracker;
 import android.view.ViewConfiguration;
 import android.widget.ImageView;
 import com.facebook.rebound.SimpleSpringListener;
 import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
 import com.facebook.rebound.SpringListener;
-import com.facebook.rebound.SpringSystem;
+import com.facebook.rebound.BaseSpringSystem;
 import com.flipkart.chatheads.ChatHeadUtils;
+import com.flipkart.chatheads.ui.physics.PixelRest;
+import com.flipkart.chatheads.ui.touch.GestureEngine;
 import java.io.Serializable;
 
 /**
@@ -31,16 +33,10 @@ public class ChatHead<T extends Serializable> extends android.support.v7.widget.
     private final int touchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
     private final float DELTA = ChatHeadUtils.dpToPx(getContext(), 10);
     private ChatHeadManager manager;
-    private SpringSystem springSystem;
+    private BaseSpringSystem springSystem;
     private boolean isSticky = false;
     private State state;
     private T key;
-    private float downX = -1;
-    private float downY = -1;
-    private VelocityTracker velocityTracker;
-    private boolean isDragging;
-    private float downTranslationX;
-    private float downTranslationY;
     private int unreadCount = 0;
     private SpringListener xPositionListener;
     private SpringListener yPositionListener;
@@ -50,8 +46,161 @@ public class ChatHead<T extends Serializable> extends android.support.v7.widget.
     private Bundle extras;
     private ImageView imageView;
     private boolean isHero;
-    private State previousState;
-    private long currentTimeMillis;
+    private boolean positionPending;
+    private boolean inTransition;
+    private boolean horizontalMoved;
+    private boolean verticalMoved;
+    /**
+     * Applies what the gesture engine decides to the springs, the close button and the
+     * arrangement
+     */
+    private final GestureEngine.Host gestureHost = new GestureEngine.Host() {
+        @Override
+        public double getPositionX() {
+            return xPositionSpring.getCurrentValue();
+        }
+
+        @Override
+        public double getPositionY() {
+            return yPositionSpring.getCurrentValue();
+        }
+
+        @Override
+        public boolean canDrag() {
+            return manager.getActiveArrangement().canDrag(ChatHead.this);
+        }
+
+        @Override
+        public boolean shouldShowCloseButton() {
+            return manager.getActiveArrangement().shouldShowCloseButton(ChatHead.this);
+        }
+
+        @Override
+        public double getDistanceToCloseButton(float x, float y) {
+            return manager.getDistanceCloseButtonFromHead(x, y);
+        }
+
+        @Override
+        public void onPress() {
+            xPositionSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
+            yPositionSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
+            setState(State.FREE);
+            MotionProfileController profileController = manager.getMotionProfileController();
+            profileController.refresh();
+            if (profileController.getActiveProfile().isPressScaleEnabled()) {
+                if (manager.getFrameWatchdog().isPressScaleEnabled()) {
+                    scaleSpring.setEndValue(.9f);
+                }
+            } else {
+                // shrinking and growing back again
+                SpringConfig config = scaleSpring.getSpringConfig();
+                profileController.addSavedTime(2 * PixelRest.getRemainingTime(1, 0, .9f,
+                        config.tension, config.friction, scaleSpring.getRestSpeedThreshold(),
+                        scaleSpring.getRestDisplacementThreshold()));
+            }
+            xPositionSpring.setAtRest();
+            yPositionSpring.setAtRest();
+        }
+
+        @Override
+        public void onDraggingChanged(boolean dragging) {
+            if (mOnItemDraggingListener != null) {
+                mOnItemDraggingListener.onItemDragging(dragging);
+            }
+        }
+
+        @Override
+        public void onFree() {
+            setState(State.FREE);
+            xPositionSpring.setSpringConfig(SpringConfigsHolder.DRAGGING);
+            yPositionSpring.setSpringConfig(SpringConfigsHolder.DRAGGING);
+        }
+
+        @Override
+        public void onCaptured() {
+            setState(State.CAPTURED);
+            xPositionSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
+            yPositionSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
+            int[] coords = manager.getChatHeadCoordsForCloseButton(ChatHead.this);
+            xPositionSpring.setEndValue(coords[0]);
+            yPositionSpring.setEndValue(coords[1]);
+            manager.getCloseButton().onCapture();
+        }
+
+        @Override
+        public void moveTo(double x, double y) {
+            xPositionSpring.setCurrentValue(x);
+            yPositionSpring.setCurrentValue(y);
+        }
+
+        @Override
+        public void requestFrame() {
+            FrameScheduler.getInstance().requestFrames(dragUpdate);
+        }
+
+        @Override
+        public void showCloseButton() {
+            manager.getCloseButton().appear();
+        }
+
+        @Override
+        public void pointCloseButtonTo(float x, float y) {
+            manager.getCloseButton().pointTo(x, y);
+        }
+
+        @Override
+        public void hideCloseButton() {
+            manager.getCloseButton().disappear(true, true);
+        }
+
+        @Override
+        public void onRelease(int velocityX, int velocityY, boolean wasDragging) {
+            xPositionSpring.setSpringConfig(SpringConfigsHolder.DRAGGING);
+            onDraggingChanged(false);
+            scaleSpring.setEndValue(1);
+            manager.getActiveArrangement().handleTouchUp(ChatHead.this, velocityX, velocityY,
+                    xPositionSpring, yPositionSpring, wasDragging);
+        }
+    };
+    private final GestureEngine gestureEngine = new GestureEngine(gestureHost, touchSlop,
+            CLOSE_ATTRACTION_THRESHOLD);
+    /**
+     * Moves the chat head to the resampled touch while it is dragged, stepped after the springs
+     */
+    private final FrameScheduler.FrameListener dragUpdate = new FrameScheduler.FrameListener() {
+        @Override
+        public boolean doFrame(long frameTimeMillis, long deltaMillis) {
+            if (xPositionSpring != null) {
+                gestureEngine.onFrame(frameTimeMillis);
+            }
+            // touch events request the next frame
+            return false;
+        }
+    };
+    /**
+     * Applies the position and scale in frames between physics steps as well
+     */
+    private final SpringInterpolator.Listener positionDraw = new SpringInterpolator.Listener() {
+        @Override
+        public void onSpringsDrawn(SpringInterpolator interpolator) {
+            positionPending = true;
+            manager.requestPositionFlush();
+        }
+    };
+    private final SpringInterpolator.Listener scaleDraw = new SpringInterpolator.Listener() {
+        @Override
+        public void onSpringsDrawn(SpringInterpolator interpolator) {
+            float scale = (float) interpolator.getValue(scaleSpring);
+            setScaleX(scale);
+            setScaleY(scale);
+        }
+    };
+    /**
+     * Samples of the touch event being handled, reused across events
+     */
+    private long[] sampleTimes = new long[8];
+    private float[] sampleXs = new float[8];
+    private float[] sampleYs = new float[8];
 
     public ChatHead(Context context) {
         super(context);
@@ -68,7 +217,7 @@ public class ChatHead<T extends Serializable> extends android.support.v7.widget.
         throw new IllegalArgumentException("This constructor cannot be used");
     }
 
-    public ChatHead(ChatHeadManager manager, SpringSystem springsHolder, Context context,
+    public ChatHead(ChatHeadManager manager, BaseSpringSystem springsHolder, Context context,
             boolean isSticky) {
         super(context);
         this.manager = manager;
@@ -105,18 +254,54 @@ public class ChatHead<T extends Serializable> extends android.support.v7.widget.
         return isSticky;
     }
 
+    /**
+     * @return true while the chat head is being dragged by a touch
+     */
+    public boolean isDragging() {
+        return gestureEngine.isDragging();
+    }
+
+    /**
+     * @return true if a {@link ChatHeadTransition} is moving this chat head. Its springs report
+     * being at rest while that happens.
+     */
+    public boolean isInTransition() {
+        return inTransition;
+    }
+
+    void setInTransition(boolean inTransition) {
+        this.inTransition = inTransition;
+    }
+
+    /**
+     * @return true if this chat head is not moving, by its springs or by a transition
+     */
+    public boolean isAtRest() {
+        return !inTransition
+                && xPositionSpring != null && xPositionSpring.isAtRest()
+                && yPositionSpring != null && yPositionSpring.isAtRest();
+    }
+
+    /**
+     * @return true if a spring moved this chat head since the position was last applied to the
+     * container
+     */
+    public boolean hasPendingPosition() {
+        return positionPending;
+    }
+
+    public void clearPendingPosition() {
+        positionPending = false;
+    }
+
     private void init() {
         xPositionListener = new SimpleSpringListener() {
             @Override
             public void onSpringUpdate(Spring spring) {
                 super.onSpringUpdate(spring);
-                manager.getChatHeadContainer()
-                        .setViewX(ChatHead.this, (int) spring.getCurrentValue());
-            }
-
-            @Override
-            public void onSpringAtRest(Spring spring) {
-                super.onSpringAtRest(spring);
+                // applied together with y once per frame by the manager
+                positionPending = true;
+                manager.requestPositionFlush();
             }
         };
         xPositionSpring = springSystem.createSpring();
@@ -127,13 +312,8 @@ public class ChatHead<T extends Serializable> extends android.support.v7.widget.
             @Override
             public void onSpringUpdate(Spring spring) {
                 super.onSpringUpdate(spring);
-                manager.getChatHeadContainer()
-                        .setViewY(ChatHead.this, (int) spring.getCurrentValue());
-            }
-
-            @Override
-            public void onSpringAtRest(Spring spring) {
-                super.onSpringAtRest(spring);
+                positionPending = true;
+                manager.requestPositionFlush();
             }
         };
         yPositionSpring = springSystem.createSpring();
@@ -141,16 +321,17 @@ public class ChatHead<T extends Serializable> extends android.support.v7.widget.
         yPositionSpring.addListener(this);
 
         scaleSpring = springSystem.createSpring();
-        scaleSpring.addListener(new SimpleSpringListener() {
-            @Override
-            public void onSpringUpdate(Spring spring) {
-                super.onSpringUpdate(spring);
-                double currentValue = spring.getCurrentValue();
-                setScaleX((float) currentValue);
-                setScaleY((float) currentValue);
-            }
-        });
         scaleSpring.setCurrentValue(1).setAtRest();
+
+        SpringInterpolator interpolator = manager.getSpringInterpolator();
+        interpolator.add(xPositionSpring, positionDraw);
+        interpolator.add(yPositionSpring, positionDraw);
+        interpolator.add(scaleSpring, scaleDraw);
+
+        HardwareLayerController layerController = manager.getHardwareLayerController();
+        xPositionSpring.addListener(layerController.createSpringListener(this));
+        yPositionSpring.addListener(layerController.createSpringListener(this));
+        scaleSpring.addListener(layerController.createSpringListener(this));
     }
 
     public int getUnreadCount() {
@@ -182,21 +363,33 @@ public class ChatHead<T extends Serializable> extends android.support.v7.widget.
 
     @Override
     public void onSpringUpdate(Spring spring) {
-        if (xPositionSpring != null && yPositionSpring != null) {
-            Spring activeHorizontalSpring = xPositionSpring;
-            Spring activeVerticalSpring = yPositionSpring;
-            if (spring != activeHorizontalSpring && spring != activeVerticalSpring) return;
-            int totalVelocity = (int) Math.hypot(activeHorizontalSpring.getVelocity(),
-                    activeVerticalSpring.getVelocity());
-            if (manager.getActiveArrangement() != null) {
-                manager.getActiveArrangement()
-                        .onSpringUpdate(this, isDragging, manager.getMaxWidth(),
-                                manager.getMaxHeight(), spring, activeHorizontalSpring,
-                                activeVerticalSpring, totalVelocity);
-            }
+        // the arrangement hears about both springs at once, see dispatchMotion
+        if (spring == xPositionSpring) {
+            horizontalMoved = true;
+        } else if (spring == yPositionSpring) {
+            verticalMoved = true;
         }
     }
 
+    /**
+     * Tells the active arrangement about the moves of the position springs since the last call,
+     * if there were any. Called by the manager once per frame, after the springs were stepped.
+     *
+     * @param motion filled with the state of this chat head before being handed on
+     */
+    public void dispatchMotion(ChatHeadMotion motion) {
+        if (!horizontalMoved && !verticalMoved) return;
+        boolean horizontal = horizontalMoved;
+        boolean vertical = verticalMoved;
+        horizontalMoved = false;
+        verticalMoved = false;
+        ChatHeadArrangement arrangement = manager.getActiveArrangement();
+        if (arrangement == null || xPositionSpring == null || yPositionSpring == null) return;
+        motion.set(xPositionSpring, yPositionSpring, horizontal, vertical, gestureEngine.isDragging(),
+                manager.getMaxWidth(), manager.getMaxHeight());
+        arrangement.onChatHeadMoved(this, motion);
+    }
+
     @Override
     public void onSpringAtRest(Spring spring) {
         if (manager.getListener() != null) manager.getListener().onChatHeadAnimateEnd(this);
@@ -229,110 +422,58 @@ public class ChatHead<T extends Serializable> extends android.support.v7.widget.
     public boolean onTouchEvent(@NonNull MotionEvent event) {
         super.onTouchEvent(event);
         if (xPositionSpring == null || yPositionSpring == null) return false;
-        //Chathead view will set the correct active springs on touch
-        Spring activeHorizontalSpring = xPositionSpring;
-        Spring activeVerticalSpring = yPositionSpring;
-
-        int action = event.getAction();
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            ChatHeadConfig config = manager.getConfig();
+            gestureEngine.setTouchResampling(config.isTouchResamplingEnabled(),
+                    config.getTouchPredictionMillis());
+        }
+        int count = copySamples(event);
+        gestureEngine.onTouchEvent(action, sampleTimes, sampleXs, sampleYs, count);
+        if (action == MotionEvent.ACTION_DOWN && gestureEngine.isResampling()) {
+            FrameScheduler.getInstance().addFrameListener(dragUpdate, FrameScheduler.ORDER_PHYSICS);
+        } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            FrameScheduler.getInstance().removeFrameListener(dragUpdate);
+        }
+        return true;
+    }
 
+    /**
+     * Copies the samples batched into the event, oldest first, in screen coordinates.
+     *
+     * @return the number of samples
+     */
+    private int copySamples(MotionEvent event) {
+        int historySize = event.getHistorySize();
+        int count = historySize + 1;
+        if (sampleTimes.length < count) {
+            sampleTimes = new long[count];
+            sampleXs = new float[count];
+            sampleYs = new float[count];
+        }
+        // historical positions are relative like getX(), and offset the same way
         float rawX = event.getRawX();
         float rawY = event.getRawY();
-        float offsetX = rawX - downX;
-        float offsetY = rawY - downY;
-        boolean showCloseButton = manager.getActiveArrangement().shouldShowCloseButton(this);
-        event.offsetLocation(manager.getChatHeadContainer().getViewX(this),
-                manager.getChatHeadContainer().getViewY(this));
-        if (action == MotionEvent.ACTION_DOWN) {
-            if (velocityTracker == null) {
-                velocityTracker = VelocityTracker.obtain();
-            } else {
-                velocityTracker.clear();
-            }
-            activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-            activeVerticalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-            setState(ChatHead.State.FREE);
-            downX = rawX;
-            downY = rawY;
-            downTranslationX = (float) activeHorizontalSpring.getCurrentValue();
-            downTranslationY = (float) activeVerticalSpring.getCurrentValue();
-            scaleSpring.setEndValue(.9f);
-            activeHorizontalSpring.setAtRest();
-            activeVerticalSpring.setAtRest();
-            velocityTracker.addMovement(event);
-        } else if (action == MotionEvent.ACTION_MOVE) {
-            currentTimeMillis = System.currentTimeMillis();
-            if (Math.hypot(offsetX, offsetY) > touchSlop) {
-                isDragging = true;
-                if (mOnItemDraggingListener != null) {
-                    mOnItemDraggingListener.onItemDragging(isDragging);
-                }
-                if (showCloseButton) {
-                    manager.getCloseButton().appear();
-                }
-            }
-            velocityTracker.addMovement(event);
-
-            if (isDragging) {
-                manager.getCloseButton().pointTo(rawX, rawY);
-                if (manager.getActiveArrangement().canDrag(this)) {
-                    double distanceCloseButtonFromHead =
-                            manager.getDistanceCloseButtonFromHead(rawX, rawY);
-                    if (distanceCloseButtonFromHead < CLOSE_ATTRACTION_THRESHOLD
-                            && showCloseButton) {
-                        setState(ChatHead.State.CAPTURED);
-                        activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                        activeVerticalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                        int[] coords = manager.getChatHeadCoordsForCloseButton(this);
-                        activeHorizontalSpring.setEndValue(coords[0]);
-                        activeVerticalSpring.setEndValue(coords[1]);
-                        previousState = getState();
-                        manager.getCloseButton().onCapture();
-                    } else {
-                        setState(ChatHead.State.FREE);
-                        activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.DRAGGING);
-                        activeVerticalSpring.setSpringConfig(SpringConfigsHolder.DRAGGING);
-                        activeHorizontalSpring.setCurrentValue(downTranslationX + offsetX);
-                        activeVerticalSpring.setCurrentValue(downTranslationY + offsetY);
-                        previousState = getState();
-                        manager.getCloseButton().appear();
-                    }
-                    velocityTracker.computeCurrentVelocity(1000);
-                }
-            }
-        } else {
-            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
-                activeHorizontalSpring.setCurrentValue(downTranslationX + offsetX);
-                activeVerticalSpring.setCurrentValue(downTranslationY + offsetY);
-                boolean wasDragging = isDragging;
-                activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.DRAGGING);
-                activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.DRAGGING);
-                isDragging = false;
-                if (mOnItemDraggingListener != null) {
-                    mOnItemDraggingListener.onItemDragging(isDragging);
-                }
-                scaleSpring.setEndValue(1);
-                int xVelocity = (int) velocityTracker.getXVelocity();
-                int yVelocity = (int) velocityTracker.getYVelocity();
-                velocityTracker.recycle();
-                velocityTracker = null;
-                if (xPositionSpring != null && yPositionSpring != null) {
-                    manager.getActiveArrangement()
-                            .handleTouchUp(this, xVelocity, yVelocity, activeHorizontalSpring,
-                                    activeVerticalSpring, wasDragging);
-                    double distanceCloseButtonFromHead =
-                            manager.getDistanceCloseButtonFromHead(rawX, rawY);
-                    if (previousState == State.FREE
-                            && distanceCloseButtonFromHead > CLOSE_ATTRACTION_THRESHOLD) {
-                        manager.getCloseButton().disappear(true, true);
-                    }
-                }
-            }
+        float rawOffsetX = rawX - event.getX();
+        float rawOffsetY = rawY - event.getY();
+        for (int i = 0; i < historySize; i++) {
+            sampleTimes[i] = event.getHistoricalEventTime(i);
+            sampleXs[i] = event.getHistoricalX(i) + rawOffsetX;
+            sampleYs[i] = event.getHistoricalY(i) + rawOffsetY;
         }
-
-        return true;
+        sampleTimes[historySize] = event.getEventTime();
+        sampleXs[historySize] = rawX;
+        sampleYs[historySize] = rawY;
+        return count;
     }
 
     public void onRemove() {
+        FrameScheduler.getInstance().removeFrameListener(dragUpdate);
+        manager.getHardwareLayerController().releaseAll(this);
+        SpringInterpolator interpolator = manager.getSpringInterpolator();
+        interpolator.remove(xPositionSpring);
+        interpolator.remove(yPositionSpring);
+        interpolator.remove(scaleSpring);
         xPositionSpring.setAtRest();
         xPositionSpring.removeAllListeners();
         xPositionSpring.destroy();
@@ -15,7 +15,38 @@ public abstract class ChatHeadArrangement {
 
     public abstract void onDeactivate(int maxWidth, int maxHeight);
 
-    public abstract void onSpringUpdate(ChatHead activeChatHead, boolean isDragging, int maxWidth, int maxHeight, Spring spring, Spring activeHorizontalSpring, Spring activeVerticalSpring, int totalVelocity);
+    /**
+     * Called when the manager is destroyed, to release whatever the arrangement registered with
+     * the {@link FrameScheduler}. The arrangement is not used afterwards.
+     */
+    public void onDestroy() {
+    }
+
+    /**
+     * Called at most once per frame for each chat head whose position springs moved, after every
+     * spring was stepped. By default forwards to
+     * {@link #onSpringUpdate(ChatHead, boolean, int, int, Spring, Spring, Spring, int)} for each of
+     * the springs which moved.
+     */
+    public void onChatHeadMoved(ChatHead chatHead, ChatHeadMotion motion) {
+        Spring horizontalSpring = chatHead.getHorizontalSpring();
+        Spring verticalSpring = chatHead.getVerticalSpring();
+        if (motion.hasHorizontalMoved()) {
+            onSpringUpdate(chatHead, motion.isDragging(), motion.getMaxWidth(), motion.getMaxHeight(),
+                    horizontalSpring, horizontalSpring, verticalSpring, motion.getTotalVelocity());
+        }
+        if (motion.hasVerticalMoved()) {
+            onSpringUpdate(chatHead, motion.isDragging(), motion.getMaxWidth(), motion.getMaxHeight(),
+                    verticalSpring, horizontalSpring, verticalSpring, motion.getTotalVelocity());
+        }
+    }
+
+    /**
+     * @deprecated called once per spring, override {@link #onChatHeadMoved(ChatHead, ChatHeadMotion)}
+     */
+    @Deprecated
+    public void onSpringUpdate(ChatHead activeChatHead, boolean isDragging, int maxWidth, int maxHeight, Spring spring, Spring activeHorizontalSpring, Spring activeVerticalSpring, int totalVelocity) {
+    }
 
     public boolean handleRawTouchEvent(MotionEvent event) {
         return false;
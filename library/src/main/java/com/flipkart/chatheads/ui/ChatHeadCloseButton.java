@@ -3,11 +3,9 @@ package com.flipkart.chatheads.ui;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.os.Build;
-import android.view.ViewGroup;
-import android.view.ViewParent;
+import com.facebook.rebound.BaseSpringSystem;
 import com.facebook.rebound.SimpleSpringListener;
 import com.facebook.rebound.Spring;
-import com.facebook.rebound.SpringSystem;
 import com.facebook.rebound.SpringUtil;
 import com.flipkart.chatheads.R;
 
@@ -27,6 +25,8 @@ public class ChatHeadCloseButton extends android.support.v7.widget.AppCompatImag
     private ChatHeadManager chatHeadManager;
     private int centerX;
     private int centerY;
+    private BaseSpringSystem springSystem;
+    private SpringInterpolator springInterpolator;
 
     public ChatHeadCloseButton(Context context, ChatHeadManager manager, int maxHeight,
             int maxWidth) {
@@ -46,42 +46,46 @@ public class ChatHeadCloseButton extends android.support.v7.widget.AppCompatImag
         this.chatHeadManager = manager;
 
         setImageResource(R.drawable.dismiss_big);
-        SpringSystem springSystem = SpringSystem.create();
+        springSystem = FrameScheduler.getInstance().createSpringSystem();
+        // drawn on every frame, between the physics steps
+        springInterpolator = new SpringInterpolator(springSystem);
         xSpring = springSystem.createSpring();
-        xSpring.addListener(new SimpleSpringListener() {
-            @Override
-            public void onSpringUpdate(Spring spring) {
-                super.onSpringUpdate(spring);
-                int x = getXFromSpring(spring);
-                manager.getChatHeadContainer().setViewX(ChatHeadCloseButton.this, x);
-            }
-        });
         ySpring = springSystem.createSpring();
-        ySpring.addListener(new SimpleSpringListener() {
+        SpringInterpolator.Listener positionDraw = new SpringInterpolator.Listener() {
             @Override
-            public void onSpringUpdate(Spring spring) {
-                super.onSpringUpdate(spring);
-                int y = getYFromSpring(spring);
-                manager.getChatHeadContainer().setViewY(ChatHeadCloseButton.this, y);
+            public void onSpringsDrawn(SpringInterpolator interpolator) {
+                manager.getChatHeadContainer().setViewPosition(ChatHeadCloseButton.this,
+                        getXFromValue(interpolator.getValue(xSpring)),
+                        getYFromValue(interpolator.getValue(ySpring)));
             }
-        });
+        };
+        springInterpolator.add(xSpring, positionDraw);
+        springInterpolator.add(ySpring, positionDraw);
         scaleSpring = springSystem.createSpring();
-        scaleSpring.addListener(new SimpleSpringListener() {
+        springInterpolator.add(scaleSpring, new SpringInterpolator.Listener() {
             @Override
-            public void onSpringUpdate(Spring spring) {
-                double currentValue = spring.getCurrentValue();
-                setScaleX((float) currentValue);
-                setScaleY((float) currentValue);
+            public void onSpringsDrawn(SpringInterpolator interpolator) {
+                float scale = (float) interpolator.getValue(scaleSpring);
+                setScaleX(scale);
+                setScaleY(scale);
             }
         });
     }
 
-    private int getYFromSpring(Spring spring) {
-        return centerY + (int) spring.getCurrentValue() - getMeasuredHeight() / 2;
+    private int getYFromValue(double value) {
+        return centerY + (int) value - getMeasuredHeight() / 2;
+    }
+
+    private int getXFromValue(double value) {
+        return centerX + (int) value - getMeasuredWidth() / 2;
     }
 
-    private int getXFromSpring(Spring spring) {
-        return centerX + (int) spring.getCurrentValue() - getMeasuredWidth() / 2;
+    /**
+     * Stops the springs of the button from being stepped. The button cannot be used afterwards.
+     */
+    public void destroy() {
+        springInterpolator.release();
+        FrameScheduler.getInstance().releaseSpringSystem(springSystem);
     }
 
     public void appear() {
@@ -89,13 +93,7 @@ public class ChatHeadCloseButton extends android.support.v7.widget.AppCompatImag
             ySpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
             xSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
             scaleSpring.setEndValue(0.85f);
-            ViewParent parent = getParent();
-            if (parent instanceof ViewGroup) {
-                int i = ((ViewGroup) parent).indexOfChild(this);
-                if (i != ((ViewGroup) parent).getChildCount() - 1) {
-                    bringToFront();
-                }
-            }
+            chatHeadManager.getChatHeadContainer().bringToFront(this);
             disappeared = false;
         }
     }
@@ -176,11 +174,11 @@ public class ChatHeadCloseButton extends android.support.v7.widget.AppCompatImag
     }
 
     public int getEndValueX() {
-        return getXFromSpring(xSpring);
+        return getXFromValue(xSpring.getCurrentValue());
     }
 
     public int getEndValueY() {
-        return getYFromSpring(ySpring);
+        return getYFromValue(ySpring.getCurrentValue());
     }
 
     public interface CloseButtonListener {
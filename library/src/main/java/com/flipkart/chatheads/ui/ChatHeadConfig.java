@@ -2,6 +2,9 @@ package com.flipkart.chatheads.ui;
 
 import android.graphics.Point;
 
+import com.flipkart.chatheads.ui.physics.AnalyticSpringIntegrator;
+import com.flipkart.chatheads.ui.physics.SpringIntegrator;
+
 /**
  * Created by kiran.kumar on 06/05/15.
  */
@@ -19,6 +22,10 @@ public class ChatHeadConfig {
     private int circularRingHeight;
     private int circularFanOutRadius;
     private boolean closeButtonHidden;
+    private SpringIntegrator.Factory transitionIntegrator = AnalyticSpringIntegrator.FACTORY;
+    private int maxPhysicsRate = FrameScheduler.DEFAULT_MAX_PHYSICS_RATE;
+    private boolean touchResamplingEnabled = true;
+    private int touchPredictionMillis;
 
     public boolean isCloseButtonHidden() {
         return closeButtonHidden;
@@ -28,6 +35,59 @@ public class ChatHeadConfig {
         this.closeButtonHidden = closeButtonHidden;
     }
 
+    public SpringIntegrator.Factory getTransitionIntegrator() {
+        return transitionIntegrator;
+    }
+
+    /**
+     * Sets how arrangements compute the moves they start themselves, like the chat heads lining
+     * up when maximized. Null steps the springs of the chat heads instead. Drags always use the
+     * springs.
+     */
+    public void setTransitionIntegrator(SpringIntegrator.Factory transitionIntegrator) {
+        this.transitionIntegrator = transitionIntegrator;
+    }
+
+    public int getMaxPhysicsRate() {
+        return maxPhysicsRate;
+    }
+
+    /**
+     * Caps how many times per second the springs are stepped, to keep their cost down on devices
+     * with high refresh rate displays. Chat heads are still drawn on every frame, interpolated
+     * between steps. The springs of all managers in the process share one physics clock, which
+     * runs at the highest cap any of them asks for, so a lower cap only takes effect once every
+     * manager uses it.
+     */
+    public void setMaxPhysicsRate(int maxPhysicsRate) {
+        this.maxPhysicsRate = maxPhysicsRate;
+    }
+
+    public boolean isTouchResamplingEnabled() {
+        return touchResamplingEnabled;
+    }
+
+    /**
+     * Moves dragged chat heads once per frame to where the finger is at the time of the frame,
+     * worked out from every touch sample, instead of to the latest sample on each touch event.
+     */
+    public void setTouchResamplingEnabled(boolean touchResamplingEnabled) {
+        this.touchResamplingEnabled = touchResamplingEnabled;
+    }
+
+    public int getTouchPredictionMillis() {
+        return touchPredictionMillis;
+    }
+
+    /**
+     * Makes dragged chat heads lead the finger by up to the given time, at most
+     * {@link com.flipkart.chatheads.ui.touch.TouchResampler#MAX_PREDICTION_MILLIS}, so that they
+     * seem to lag behind it less. Only used with touch resampling.
+     */
+    public void setTouchPredictionMillis(int touchPredictionMillis) {
+        this.touchPredictionMillis = touchPredictionMillis;
+    }
+
     public void setCircularFanOutRadius(int circularFanOutRadius) {
         this.circularFanOutRadius = circularFanOutRadius;
     }
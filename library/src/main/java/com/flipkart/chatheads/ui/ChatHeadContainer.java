@@ -27,12 +27,31 @@ public interface ChatHeadContainer {
 
     void setViewY(View view, int yPosition);
 
+    void setViewPosition(View view, int xPosition, int yPosition);
+
+    /**
+     * Moves several views in a single pass. Only the first {@code count} entries of the arrays are
+     * used.
+     */
+    void setViewPositions(View[] views, int[] xPositions, int[] yPositions, int count);
+
     int getViewX(View view);
 
     int getViewY(View view);
 
+    /**
+     * Stacks the view above the other views of this container. Implementations should not
+     * reorder, detach or request layout of their children for this.
+     */
     void bringToFront(View view);
 
+    /**
+     * Stacks the view below the other views of this container.
+     *
+     * @see #bringToFront(View)
+     */
+    void sendToBack(View view);
+
     void addView(View view, ViewGroup.LayoutParams layoutParams);
 
     void removeView(View view);
@@ -40,4 +59,24 @@ public interface ChatHeadContainer {
     void onArrangementChanged(ChatHeadArrangement oldArrangement, ChatHeadArrangement newArrangement);
 
     void requestLayout();
+
+    void onCloseButtonAppear();
+
+    void onCloseButtonDisappear();
+
+    /**
+     * Hides everything this container added to the screen, without removing it. Called when the
+     * manager moves to another container. If the same manager moves back,
+     * {@link #onInitialized(ChatHeadManager)} is called again and shows it again instead of
+     * adding it anew.
+     */
+    void onDetached();
+
+    /**
+     * Removes everything this container added to the screen. Called when the manager is
+     * destroyed while using this container. A container the manager moved away from is destroyed
+     * by its owner once it is no longer needed. A destroyed container cannot be initialized
+     * again.
+     */
+    void destroy();
 }
\ No newline at end of file
@@ -9,7 +9,7 @@ import android.util.DisplayMetrics;
 import android.view.View;
 import android.view.ViewGroup;
 
-import com.facebook.rebound.SpringSystem;
+import com.facebook.rebound.BaseSpringSystem;
 
 import java.io.Serializable;
 import java.util.List;
@@ -105,7 +105,10 @@ public interface ChatHeadManager<T extends Serializable> {
 
     void recreateView(T key);
 
-    SpringSystem getSpringSystem();
+    /**
+     * @return the spring system of the chat heads, stepped by the {@link FrameScheduler}
+     */
+    BaseSpringSystem getSpringSystem();
 
     View attachView(ChatHead<T> activeChatHead, ViewGroup parent);
 
@@ -129,8 +132,56 @@ public interface ChatHeadManager<T extends Serializable> {
 
     UpArrowLayout getArrowLayout();
 
+    /**
+     * @return the controller which puts animating views on hardware layers
+     */
+    HardwareLayerController getHardwareLayerController();
+
+    /**
+     * @return the controller which brings chat heads to rest once they stop moving visibly
+     */
+    PixelRestController getPixelRestController();
+
+    /**
+     * @return the controller which picks how much motion to spend for the state of the device
+     */
+    MotionProfileController getMotionProfileController();
+
+    /**
+     * @return the watchdog which steps visual quality down while frames go over budget
+     */
+    FrameWatchdog getFrameWatchdog();
+
+    /**
+     * @return what draws the springs of {@link #getSpringSystem()} in frames between physics steps
+     */
+    SpringInterpolator getSpringInterpolator();
+
+    /**
+     * Asks for the chat heads that moved to be reported to the active arrangement in the
+     * {@link FrameScheduler#ORDER_ARRANGEMENT} step, and for their spring positions to be applied
+     * to the container in the {@link FrameScheduler#ORDER_LAYOUT} step of the current or the next
+     * frame.
+     */
+    void requestPositionFlush();
+
     ChatHeadContainer getChatHeadContainer();
 
+    /**
+     * Moves all chat heads, the close button and the content views to another container.
+     * Chat heads keep their springs, so positions and running animations carry over.
+     * The previous container is only detached, so moving back to it does not add its windows
+     * again. It is destroyed by its owner once it is no longer needed.
+     */
+    void setChatHeadContainer(ChatHeadContainer chatHeadContainer);
+
+    /**
+     * Removes the chat heads without notifying the listener, destroys the container and stops
+     * all per-frame work of the manager, so that nothing keeps it reachable from the
+     * {@link FrameScheduler}. The manager cannot be used afterwards.
+     */
+    void destroy();
+
     DisplayMetrics getDisplayMetrics();
 
     int getMaxWidth();
@@ -0,0 +1,84 @@
+package com.flipkart.chatheads.ui;
+
+import com.facebook.rebound.Spring;
+
+/**
+ * Where a chat head is and how it moves after the springs were stepped in a frame. Handed to
+ * {@link ChatHeadArrangement#onChatHeadMoved(ChatHead, ChatHeadMotion)}. The same instance is
+ * filled for every chat head and frame, so copy what needs to be kept.
+ */
+public class ChatHeadMotion {
+    private double x;
+    private double y;
+    private double velocityX;
+    private double velocityY;
+    private int totalVelocity;
+    private boolean dragging;
+    private boolean horizontalMoved;
+    private boolean verticalMoved;
+    private int maxWidth;
+    private int maxHeight;
+
+    void set(Spring horizontalSpring, Spring verticalSpring, boolean horizontalMoved,
+            boolean verticalMoved, boolean dragging, int maxWidth, int maxHeight) {
+        x = horizontalSpring.getCurrentValue();
+        y = verticalSpring.getCurrentValue();
+        velocityX = horizontalSpring.getVelocity();
+        velocityY = verticalSpring.getVelocity();
+        totalVelocity = (int) Math.hypot(velocityX, velocityY);
+        this.horizontalMoved = horizontalMoved;
+        this.verticalMoved = verticalMoved;
+        this.dragging = dragging;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    public double getVelocityY() {
+        return velocityY;
+    }
+
+    /**
+     * @return speed of the chat head, rounded down
+     */
+    public int getTotalVelocity() {
+        return totalVelocity;
+    }
+
+    public boolean isDragging() {
+        return dragging;
+    }
+
+    /**
+     * @return true if the horizontal spring moved since the last call for this chat head
+     */
+    public boolean hasHorizontalMoved() {
+        return horizontalMoved;
+    }
+
+    /**
+     * @return true if the vertical spring moved since the last call for this chat head
+     */
+    public boolean hasVerticalMoved() {
+        return verticalMoved;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+}
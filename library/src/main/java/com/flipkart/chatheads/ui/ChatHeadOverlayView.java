@@ -1,8 +1,5 @@
 package com.flipkart.chatheads.ui;
 
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
-import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -10,10 +7,9 @@ import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PathDashPathEffect;
 import android.graphics.PathEffect;
-import android.os.Build;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.View;
-import android.view.animation.LinearInterpolator;
 
 import com.flipkart.chatheads.ChatHeadUtils;
 
@@ -23,8 +19,29 @@ public class ChatHeadOverlayView extends View {
     private float STAMP_SPACING;
     private Path arrowDashedPath;
     private Paint paint = new Paint();
-    private ObjectAnimator animator;
     private PathEffect pathDashEffect;
+    private long animationStartTime = -1;
+    private MotionProfileController motionProfileController;
+    private boolean pathEnabled = true;
+    /**
+     * Time the path was last shown without animating, or -1
+     */
+    private long stillSince = -1;
+    private final FrameScheduler.FrameListener phaseAnimation = new FrameScheduler.FrameListener() {
+        @Override
+        public boolean doFrame(long frameTimeMillis, long deltaMillis) {
+            if (arrowDashedPath == null || stillSince >= 0 || !pathEnabled) {
+                animationStartTime = -1;
+                return false;
+            }
+            if (animationStartTime < 0) {
+                animationStartTime = frameTimeMillis;
+            }
+            long elapsed = (frameTimeMillis - animationStartTime) % ANIMATION_DURATION;
+            setPhase(-STAMP_SPACING * elapsed / ANIMATION_DURATION);
+            return true;
+        }
+    };
 
     public ChatHeadOverlayView(Context context) {
         super(context);
@@ -39,11 +56,21 @@ public class ChatHeadOverlayView extends View {
     private void init(Context context) {
         STAMP_SPACING = ChatHeadUtils.dpToPx(context, 20);
         OVAL_RADIUS = ChatHeadUtils.dpToPx(context, 3);
-        animator = ObjectAnimator.ofFloat(this, "phase", 0f, -STAMP_SPACING);
-        animator.setInterpolator(new LinearInterpolator());
-        animator.setRepeatMode(ValueAnimator.RESTART);
-        animator.setRepeatCount(ValueAnimator.INFINITE);
-        animator.setDuration(ANIMATION_DURATION);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        FrameScheduler.getInstance().addFrameListener(phaseAnimation, FrameScheduler.ORDER_ANIMATION);
+        if (arrowDashedPath != null) {
+            animatePath();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        FrameScheduler.getInstance().removeFrameListener(phaseAnimation);
+        super.onDetachedFromWindow();
     }
 
     public ChatHeadOverlayView(Context context, AttributeSet attrs, int defStyleAttr) {
@@ -54,7 +81,7 @@ public class ChatHeadOverlayView extends View {
     @Override
     public void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        if (arrowDashedPath != null) {
+        if (arrowDashedPath != null && pathEnabled) {
             paint.setPathEffect(pathDashEffect);
             canvas.drawPath(arrowDashedPath, paint);
         }
@@ -80,7 +107,7 @@ public class ChatHeadOverlayView extends View {
     }
 
     /**
-     * Will be called by animator
+     * Will be called on every frame while the path is shown
      * @param phase
      */
     private void setPhase(float phase) {
@@ -88,16 +115,62 @@ public class ChatHeadOverlayView extends View {
         invalidate();
     }
 
-    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
-    private void animatePath() {
-        animator.start();
+    public void setMotionProfileController(MotionProfileController motionProfileController) {
+        this.motionProfileController = motionProfileController;
+    }
+
+    /**
+     * Stops drawing and moving the path when disabled. It is still kept, so that it shows up
+     * again when enabled.
+     */
+    public void setPathEnabled(boolean pathEnabled) {
+        if (this.pathEnabled == pathEnabled) return;
+        this.pathEnabled = pathEnabled;
+        if (arrowDashedPath != null) {
+            if (pathEnabled) {
+                animatePath();
+            }
+            // otherwise the animation stops on its next frame
+            invalidate();
+        }
+    }
 
+    /**
+     * Starts or stops moving the path shown, for a change of the motion profile.
+     */
+    public void updatePathAnimation() {
+        if (arrowDashedPath != null) {
+            animatePath();
+        }
+    }
+
+    private void animatePath() {
+        animationStartTime = -1;
+        if (!pathEnabled) return;
+        if (motionProfileController != null
+                && !motionProfileController.getActiveProfile().isOverlayAnimationEnabled()) {
+            if (stillSince < 0) {
+                stillSince = SystemClock.uptimeMillis();
+            }
+            // the phase animation stops on its next frame
+            setPhase(0);
+            return;
+        }
+        countStillTime();
+        FrameScheduler.getInstance().requestFrames(phaseAnimation);
     }
 
     public void clearPath() {
-        animator.cancel();
+        // the animation stops on its next frame
         arrowDashedPath = null;
+        countStillTime();
         invalidate();
     }
 
+    private void countStillTime() {
+        if (stillSince < 0) return;
+        motionProfileController.addSavedTime((SystemClock.uptimeMillis() - stillSince) / 1000.0);
+        stillSince = -1;
+    }
+
 }
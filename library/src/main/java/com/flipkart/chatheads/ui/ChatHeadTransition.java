@@ -0,0 +1,257 @@
+package com.flipkart.chatheads.ui;
+
+import android.os.SystemClock;
+
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.flipkart.chatheads.ui.physics.SpringIntegrator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves chat heads to new positions along a path computed by a {@link SpringIntegrator} when the
+ * move starts, instead of stepping their springs frame by frame. Used by arrangements for moves
+ * which no touch is driving. Positions are evaluated at the time of each frame, so dropped frames
+ * and different refresh rates do not change the path. Each chat head is handed back as soon as
+ * its path is within the rest thresholds of its springs, as the springs would have come to rest.
+ * The settle time of the integrators only caps how long the transition can run.
+ * <p>
+ * While a chat head is moved, its springs get a config without tension and no velocity so that
+ * the spring system leaves them alone, and positions are written with
+ * {@link Spring#setCurrentValue(double, boolean)}. The end values stay at the target. Giving one
+ * of the springs another config, as a touch does, hands that chat head back to the spring system
+ * from where it is.
+ */
+public class ChatHeadTransition {
+
+    /**
+     * Marks springs moved by a transition. Never shared with other springs.
+     */
+    private static final SpringConfig SCRIPTED = new SpringConfig(0, 0);
+
+    private final ChatHeadManager manager;
+    private final List<Entry> entries = new ArrayList<>();
+    private Listener listener;
+    private long startTime;
+    private double duration;
+    private boolean running;
+
+    private final FrameScheduler.FrameListener frameListener = new FrameScheduler.FrameListener() {
+        @Override
+        public boolean doFrame(long frameTimeMillis, long deltaMillis) {
+            if (!running) return false;
+            double time = Math.max(0, (frameTimeMillis - startTime) / 1000.0);
+            boolean timedOut = time >= duration;
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                Entry entry = entries.get(i);
+                if (!entry.isOwned()) {
+                    release(entry);
+                    entries.remove(i);
+                } else if (timedOut || entry.isSettled(time)) {
+                    entry.horizontalSpring.setSpringConfig(entry.config);
+                    entry.verticalSpring.setSpringConfig(entry.config);
+                    entry.horizontalSpring.setCurrentValue(entry.endX);
+                    entry.verticalSpring.setCurrentValue(entry.endY);
+                    release(entry);
+                    entries.remove(i);
+                } else {
+                    entry.moveTo(time);
+                }
+            }
+            if (entries.isEmpty()) {
+                finish();
+            }
+            return running;
+        }
+    };
+
+    public interface Listener {
+        /**
+         * Called when every chat head has reached its end position or was handed back to the
+         * spring system. Not called for {@link #cancel()}.
+         */
+        void onTransitionEnd(ChatHeadTransition transition);
+    }
+
+    private static class Entry {
+        final ChatHead chatHead;
+        final Spring horizontalSpring;
+        final Spring verticalSpring;
+        final SpringConfig config;
+        final double endX;
+        final double endY;
+        SpringIntegrator horizontalIntegrator;
+        SpringIntegrator verticalIntegrator;
+
+        Entry(ChatHead chatHead, double endX, double endY, SpringConfig config) {
+            this.chatHead = chatHead;
+            this.horizontalSpring = chatHead.getHorizontalSpring();
+            this.verticalSpring = chatHead.getVerticalSpring();
+            this.config = config;
+            this.endX = endX;
+            this.endY = endY;
+        }
+
+        boolean isOwned() {
+            return chatHead.getHorizontalSpring() == horizontalSpring
+                    && chatHead.getVerticalSpring() == verticalSpring
+                    && horizontalSpring.getSpringConfig() == SCRIPTED
+                    && verticalSpring.getSpringConfig() == SCRIPTED;
+        }
+
+        /**
+         * @return true if the path is within the rest thresholds of the springs at that time
+         */
+        boolean isSettled(double time) {
+            return isSettled(horizontalIntegrator, horizontalSpring, endX, time)
+                    && isSettled(verticalIntegrator, verticalSpring, endY, time);
+        }
+
+        private static boolean isSettled(SpringIntegrator integrator, Spring spring, double end,
+                double time) {
+            return Math.abs(integrator.getVelocity(time)) <= spring.getRestSpeedThreshold()
+                    && Math.abs(integrator.getPosition(time) - end) <= spring.getRestDisplacementThreshold();
+        }
+
+        void moveTo(double time) {
+            // the spring system snaps the end value to the position once, when it stops a moving spring
+            if (horizontalSpring.getEndValue() != endX) horizontalSpring.setEndValue(endX);
+            if (verticalSpring.getEndValue() != endY) verticalSpring.setEndValue(endY);
+            horizontalSpring.setCurrentValue(horizontalIntegrator.getPosition(time), false);
+            verticalSpring.setCurrentValue(verticalIntegrator.getPosition(time), false);
+        }
+    }
+
+    public ChatHeadTransition(ChatHeadManager manager) {
+        this.manager = manager;
+        FrameScheduler.getInstance().addFrameListener(frameListener, FrameScheduler.ORDER_PHYSICS);
+    }
+
+    /**
+     * @return false if the manager's config has no integrator for transitions, in which case
+     * arrangements should animate through the springs as before
+     */
+    public boolean isEnabled() {
+        return manager.getConfig() != null && manager.getConfig().getTransitionIntegrator() != null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return longest the running transition can take in seconds. It usually ends earlier, when
+     * every chat head has settled.
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * Adds a chat head to the next {@link #start(Listener)}. The move starts from the current
+     * position and velocity of its springs and uses the given config.
+     */
+    public void add(ChatHead chatHead, double x, double y, SpringConfig config) {
+        if (chatHead.getHorizontalSpring() == null || chatHead.getVerticalSpring() == null) return;
+        entries.add(new Entry(chatHead, x, y, config));
+    }
+
+    public void start(Listener listener) {
+        SpringIntegrator.Factory factory = manager.getConfig().getTransitionIntegrator();
+        this.listener = listener;
+        duration = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry.horizontalIntegrator != null) continue;
+            entry.horizontalIntegrator = createIntegrator(factory, entry.horizontalSpring, entry.endX, entry.config);
+            entry.verticalIntegrator = createIntegrator(factory, entry.verticalSpring, entry.endY, entry.config);
+            duration = Math.max(duration, getSettleTime(entry.horizontalIntegrator, entry.horizontalSpring));
+            duration = Math.max(duration, getSettleTime(entry.verticalIntegrator, entry.verticalSpring));
+            entry.horizontalSpring.setSpringConfig(SCRIPTED);
+            entry.verticalSpring.setSpringConfig(SCRIPTED);
+            entry.horizontalSpring.setVelocity(0);
+            entry.verticalSpring.setVelocity(0);
+            entry.horizontalSpring.setEndValue(entry.endX);
+            entry.verticalSpring.setEndValue(entry.endY);
+            entry.chatHead.setInTransition(true);
+            manager.getHardwareLayerController().acquire(entry.chatHead);
+            if (manager.getListener() != null) {
+                manager.getListener().onChatHeadAnimateStart(entry.chatHead);
+            }
+        }
+        startTime = SystemClock.uptimeMillis();
+        running = true;
+        if (Double.isInfinite(duration)) {
+            // never settles, let the springs run it
+            cancel();
+            if (listener != null) listener.onTransitionEnd(this);
+            return;
+        }
+        FrameScheduler.getInstance().requestFrames(frameListener);
+    }
+
+    /**
+     * Hands every chat head back to the spring system from where it is now.
+     */
+    public void cancel() {
+        double time = Math.max(0, (SystemClock.uptimeMillis() - startTime) / 1000.0);
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (running && entry.horizontalIntegrator != null && entry.isOwned()) {
+                entry.horizontalSpring.setSpringConfig(entry.config);
+                entry.verticalSpring.setSpringConfig(entry.config);
+                entry.horizontalSpring.setVelocity(entry.horizontalIntegrator.getVelocity(time));
+                entry.verticalSpring.setVelocity(entry.verticalIntegrator.getVelocity(time));
+                entry.horizontalSpring.setEndValue(entry.endX);
+                entry.verticalSpring.setEndValue(entry.endY);
+            }
+            release(entry);
+        }
+        entries.clear();
+        running = false;
+        listener = null;
+    }
+
+    /**
+     * Cancels the running transition and stops listening to frames. The transition cannot be
+     * used afterwards.
+     */
+    public void release() {
+        cancel();
+        FrameScheduler.getInstance().removeFrameListener(frameListener);
+    }
+
+    private void finish() {
+        for (int i = 0; i < entries.size(); i++) {
+            release(entries.get(i));
+        }
+        entries.clear();
+        running = false;
+        Listener listener = this.listener;
+        this.listener = null;
+        if (listener != null) {
+            listener.onTransitionEnd(this);
+        }
+    }
+
+    private void release(Entry entry) {
+        if (entry.horizontalIntegrator == null) return;
+        entry.chatHead.setInTransition(false);
+        manager.getHardwareLayerController().release(entry.chatHead);
+        if (manager.getListener() != null) {
+            manager.getListener().onChatHeadAnimateEnd(entry.chatHead);
+        }
+    }
+
+    private static SpringIntegrator createIntegrator(SpringIntegrator.Factory factory, Spring spring,
+            double end, SpringConfig config) {
+        SpringIntegrator integrator = factory.create();
+        integrator.reset(spring.getCurrentValue(), spring.getVelocity(), end, config.tension, config.friction);
+        return integrator;
+    }
+
+    private static double getSettleTime(SpringIntegrator integrator, Spring spring) {
+        return integrator.getSettleTime(spring.getRestSpeedThreshold(), spring.getRestDisplacementThreshold());
+    }
+}
@@ -1,11 +1,13 @@
 package com.flipkart.chatheads.ui;
 
 import android.content.Context;
+import android.content.res.Configuration;
 import android.util.DisplayMetrics;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.WindowManager;
 import android.widget.FrameLayout;
+import com.flipkart.chatheads.DisplayMetricsCache;
 
 /**
  * Created by kiran.kumar on 02/11/16.
@@ -15,7 +17,6 @@ public abstract class FrameChatHeadContainer implements ChatHeadContainer {
 
     private HostFrameLayout frameLayout;
     private final Context context;
-    DisplayMetrics displayMetrics = new DisplayMetrics();
     private ChatHeadManager manager;
 
     public FrameChatHeadContainer(Context context) {
@@ -29,12 +30,24 @@ public abstract class FrameChatHeadContainer implements ChatHeadContainer {
 
     @Override
     public void onInitialized(ChatHeadManager manager) {
+        if (frameLayout != null) {
+            // moved back to after onDetached
+            frameLayout.setVisibility(View.VISIBLE);
+            return;
+        }
         this.manager = manager;
         HostFrameLayout frameLayout = new HostFrameLayout(context, this, manager) {
             @Override
             protected void backPress() {
                 onBackPressed();
             }
+
+            @Override
+            protected void onConfigurationChanged(Configuration newConfig) {
+                super.onConfigurationChanged(newConfig);
+                DisplayMetricsCache.get(context).invalidate();
+                onHostConfigurationChanged(newConfig);
+            }
         };
 
         frameLayout.setFocusable(true);
@@ -43,6 +56,13 @@ public abstract class FrameChatHeadContainer implements ChatHeadContainer {
         addContainer(frameLayout, false);
     }
 
+    @Override
+    public void onDetached() {
+        if (frameLayout != null) {
+            frameLayout.setVisibility(View.GONE);
+        }
+    }
+
     public Context getContext() {
         return context;
     }
@@ -61,7 +81,7 @@ public abstract class FrameChatHeadContainer implements ChatHeadContainer {
     @Override
     public void requestLayout() {
         if(frameLayout!=null) {
-            frameLayout.requestLayout();
+            frameLayout.requestManagerMeasure();
         }
     }
 
@@ -84,6 +104,20 @@ public abstract class FrameChatHeadContainer implements ChatHeadContainer {
         //Override this method to implementation back event
     }
 
+    protected void onHostConfigurationChanged(Configuration newConfig) {
+        //Hook
+    }
+
+    @Override
+    public void onCloseButtonAppear() {
+        //Hook
+    }
+
+    @Override
+    public void onCloseButtonDisappear() {
+        //Hook
+    }
+
     @Override
     public void setViewX(View view, int xPosition) {
         view.setTranslationX(xPosition);
@@ -94,11 +128,22 @@ public abstract class FrameChatHeadContainer implements ChatHeadContainer {
         view.setTranslationY(yPosition);
     }
 
+    @Override
+    public void setViewPosition(View view, int xPosition, int yPosition) {
+        view.setTranslationX(xPosition);
+        view.setTranslationY(yPosition);
+    }
+
+    @Override
+    public void setViewPositions(View[] views, int[] xPositions, int[] yPositions, int count) {
+        for (int i = 0; i < count; i++) {
+            setViewPosition(views[i], xPositions[i], yPositions[i]);
+        }
+    }
+
     @Override
     public DisplayMetrics getDisplayMetrics() {
-        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
-        windowManager.getDefaultDisplay().getMetrics(displayMetrics);
-        return displayMetrics;
+        return DisplayMetricsCache.get(context).getDisplayMetrics();
     }
 
     @Override
@@ -113,7 +158,16 @@ public abstract class FrameChatHeadContainer implements ChatHeadContainer {
 
     @Override
     public void bringToFront(View view) {
-        view.bringToFront();
+        if (frameLayout != null) {
+            frameLayout.raiseChild(view);
+        }
+    }
+
+    @Override
+    public void sendToBack(View view) {
+        if (frameLayout != null) {
+            frameLayout.lowerChild(view);
+        }
     }
 
     public abstract void addContainer(View container, boolean focusable);
@@ -0,0 +1,484 @@
+package com.flipkart.chatheads.ui;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SpringLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Drives every per-frame piece of work of the library from a single vsync callback.
+ * <p>
+ * Work is registered as a {@link FrameListener} with an order. On every frame the active listeners
+ * are stepped once, in order: spring systems first ({@link #ORDER_PHYSICS}), then arrangements
+ * reacting to where the chat heads ended up ({@link #ORDER_ARRANGEMENT}), then animations
+ * ({@link #ORDER_ANIMATION}), then applying the results to views ({@link #ORDER_LAYOUT}), then
+ * anything which pushes them out of the process, like window updates ({@link #ORDER_FLUSH}).
+ * A listener which becomes active while a frame is being processed is still stepped in that
+ * frame if its order comes later. No callback is posted once every listener is idle.
+ * <p>
+ * Listeners added with {@link #addFixedRateListener(FrameListener)}, like the spring systems, are
+ * stepped on a physics clock which runs at no more than {@link #getMaxPhysicsRate()} steps per
+ * second, whatever the refresh rate of the display. On faster displays they skip frames, and
+ * whatever renders their results draws them in between their last two steps by
+ * {@link #getPhysicsAlpha()}, see {@link SpringInterpolator}, so the cost of the physics and
+ * everything it triggers stays that of a 60Hz display. The clock is shared by every spring system
+ * of the process, so it runs at the highest rate requested with
+ * {@link #requestMaxPhysicsRate(Object, int)}.
+ * <p>
+ * The time listeners take is measured per order and handed to {@link FrameStatsListener}s after
+ * every frame. As the scheduler is shared, the timings are those of the whole process.
+ * <p>
+ * The scheduler is shared by the whole process and keeps every listener it is given reachable,
+ * so whatever registers a listener or creates a spring system removes it again when it is
+ * destroyed, see {@link ChatHeadManager#destroy()}.
+ * <p>
+ * Must be used from the main thread.
+ */
+public class FrameScheduler {
+
+    public static final int ORDER_PHYSICS = 0;
+    public static final int ORDER_ARRANGEMENT = 1;
+    public static final int ORDER_ANIMATION = 2;
+    public static final int ORDER_LAYOUT = 3;
+    public static final int ORDER_FLUSH = 4;
+    private static final int ORDER_COUNT = ORDER_FLUSH + 1;
+
+    public static final int DEFAULT_MAX_PHYSICS_RATE = 60;
+
+    /**
+     * Longest step handed to listeners, so that a stall does not make springs jump
+     */
+    private static final long MAX_FRAME_DELTA = 64;
+    private static final long FALLBACK_FRAME_DELAY = 16;
+    /**
+     * Part of a physics step a frame may be short of and still take the step, so that frame
+     * timing jitter does not alternate between zero and two steps when the rates are about equal
+     */
+    private static final double PHYSICS_STEP_TOLERANCE = 0.25;
+    /**
+     * Weight of the latest frame in the average frame interval
+     */
+    private static final double FRAME_INTERVAL_SMOOTHING = 0.1;
+
+    private static FrameScheduler instance;
+
+    private final ArrayList<Entry> entries = new ArrayList<>();
+    private final ArrayList<FrameStatsListener> statsListeners = new ArrayList<>(1);
+    private final long[] orderNanos = new long[ORDER_COUNT];
+    private boolean frameScheduled;
+    private long lastFrameTime = -1;
+    private Handler handler;
+    private Object frameCallback;
+    private int maxPhysicsRate = DEFAULT_MAX_PHYSICS_RATE;
+    private int defaultPhysicsRate = DEFAULT_MAX_PHYSICS_RATE;
+    private final IdentityHashMap<Object, Integer> physicsRateRequests = new IdentityHashMap<>();
+    private double physicsStepMillis = 1000.0 / DEFAULT_MAX_PHYSICS_RATE;
+    private long physicsFrameTime = -1;
+    private double physicsTime;
+    private double physicsLag;
+    private long physicsClock;
+    private long previousPhysicsClock;
+    /**
+     * Physics steps taken in the last frame which took any
+     */
+    private int lastPhysicsSteps = 1;
+    private double averageFrameInterval = 1000.0 / DEFAULT_MAX_PHYSICS_RATE;
+    private final Runnable frameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            doFrame(SystemClock.uptimeMillis());
+        }
+    };
+
+    public interface FrameListener {
+        /**
+         * @param frameTimeMillis time of the frame in the {@link SystemClock#uptimeMillis()} base
+         * @param deltaMillis     time since the previous frame this listener was stepped in
+         * @return true if the listener needs another frame
+         */
+        boolean doFrame(long frameTimeMillis, long deltaMillis);
+    }
+
+    public interface FrameStatsListener {
+        /**
+         * Called at the end of every frame in which listeners were stepped.
+         *
+         * @param frameTimeMillis time of the frame in the {@link SystemClock#uptimeMillis()} base
+         * @param orderNanos      time the listeners of each order took in this frame, indexed by
+         *                        order. Only valid during the call.
+         */
+        void onFrameStats(long frameTimeMillis, long[] orderNanos);
+    }
+
+    private static class Entry {
+        final FrameListener listener;
+        final int order;
+        final boolean fixedRate;
+        boolean active;
+        long lastFrameTime = -1;
+
+        Entry(FrameListener listener, int order, boolean fixedRate) {
+            this.listener = listener;
+            this.order = order;
+            this.fixedRate = fixedRate;
+        }
+    }
+
+    public static FrameScheduler getInstance() {
+        if (instance == null) {
+            instance = new FrameScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a listener. It is not stepped until {@link #requestFrames(FrameListener)} is called.
+     */
+    public void addFrameListener(FrameListener listener, int order) {
+        if (order < ORDER_PHYSICS || order >= ORDER_COUNT) {
+            throw new IllegalArgumentException("Unknown order " + order);
+        }
+        addEntry(listener, order, false);
+    }
+
+    /**
+     * Registers a listener which is stepped in the {@link #ORDER_PHYSICS} step, on the physics
+     * clock. Its deltas are whole physics steps and frames without a step are skipped.
+     */
+    public void addFixedRateListener(FrameListener listener) {
+        addEntry(listener, ORDER_PHYSICS, true);
+    }
+
+    private void addEntry(FrameListener listener, int order, boolean fixedRate) {
+        if (findEntry(listener) >= 0) return;
+        int index = entries.size();
+        while (index > 0 && entries.get(index - 1).order > order) {
+            index--;
+        }
+        entries.add(index, new Entry(listener, order, fixedRate));
+    }
+
+    public void removeFrameListener(FrameListener listener) {
+        int index = findEntry(listener);
+        if (index >= 0) {
+            entries.remove(index);
+        }
+    }
+
+    /**
+     * Hands the timings of every frame to the listener from the next frame on. The timings cover
+     * all the listeners of the scheduler, that is those of every chat head manager in the process,
+     * not just the ones registered by whoever added the stats listener. Frames are only measured
+     * while there is at least one stats listener.
+     */
+    public void addFrameStatsListener(FrameStatsListener listener) {
+        if (!statsListeners.contains(listener)) {
+            statsListeners.add(listener);
+        }
+    }
+
+    /**
+     * Stops handing timings to a listener added with
+     * {@link #addFrameStatsListener(FrameStatsListener)}.
+     */
+    public void removeFrameStatsListener(FrameStatsListener listener) {
+        statsListeners.remove(listener);
+    }
+
+    /**
+     * Steps the listener on every frame until it returns false from
+     * {@link FrameListener#doFrame(long, long)}. Ignored for listeners which are not registered.
+     */
+    public void requestFrames(FrameListener listener) {
+        int index = findEntry(listener);
+        if (index < 0) return;
+        entries.get(index).active = true;
+        scheduleFrame();
+    }
+
+    /**
+     * @return a spring system which is stepped by this scheduler
+     */
+    public BaseSpringSystem createSpringSystem() {
+        SchedulerSpringLooper looper = new SchedulerSpringLooper();
+        BaseSpringSystem springSystem = new BaseSpringSystem(looper);
+        addFixedRateListener(looper);
+        return springSystem;
+    }
+
+    /**
+     * Stops stepping a spring system created by {@link #createSpringSystem()}.
+     */
+    public void releaseSpringSystem(BaseSpringSystem springSystem) {
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            FrameListener listener = entries.get(i).listener;
+            if (listener instanceof SchedulerSpringLooper
+                    && ((SchedulerSpringLooper) listener).getSpringSystem() == springSystem) {
+                entries.remove(i);
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return frameScheduled;
+    }
+
+    /**
+     * Caps how often fixed rate listeners are stepped while no rate is requested with
+     * {@link #requestMaxPhysicsRate(Object, int)}. Displays with a lower refresh rate step them
+     * once per frame.
+     *
+     * @param maxPhysicsRate steps per second
+     */
+    public void setMaxPhysicsRate(int maxPhysicsRate) {
+        checkPhysicsRate(maxPhysicsRate);
+        defaultPhysicsRate = maxPhysicsRate;
+        updatePhysicsRate();
+    }
+
+    /**
+     * Asks for fixed rate listeners to be stepped at up to the given rate, replacing the earlier
+     * request of the same owner. There is one physics clock for the whole process, so it runs at
+     * the highest rate requested, and no owner is stepped slower than it asked for. A lower rate
+     * only takes effect once every owner asks for it.
+     *
+     * @param owner          whatever the request is made for, like a chat head manager
+     * @param maxPhysicsRate steps per second
+     */
+    public void requestMaxPhysicsRate(Object owner, int maxPhysicsRate) {
+        checkPhysicsRate(maxPhysicsRate);
+        physicsRateRequests.put(owner, maxPhysicsRate);
+        updatePhysicsRate();
+    }
+
+    /**
+     * Drops the rate requested by the owner, when it is destroyed.
+     */
+    public void removeMaxPhysicsRate(Object owner) {
+        if (physicsRateRequests.remove(owner) != null) {
+            updatePhysicsRate();
+        }
+    }
+
+    private static void checkPhysicsRate(int maxPhysicsRate) {
+        if (maxPhysicsRate <= 0) {
+            throw new IllegalArgumentException("The physics rate must be positive");
+        }
+    }
+
+    private void updatePhysicsRate() {
+        int rate = 0;
+        for (Integer requested : physicsRateRequests.values()) {
+            rate = Math.max(rate, requested);
+        }
+        if (rate == 0) {
+            rate = defaultPhysicsRate;
+        }
+        maxPhysicsRate = rate;
+        physicsStepMillis = 1000.0 / rate;
+    }
+
+    public int getMaxPhysicsRate() {
+        return maxPhysicsRate;
+    }
+
+    /**
+     * @return how far, in milliseconds, the current frame is ahead of the state the fixed rate
+     * listeners were last stepped to. Can be slightly negative, and is 0 while no fixed rate
+     * listener runs.
+     */
+    public double getPhysicsLagMillis() {
+        return physicsFrameTime < 0 ? 0 : physicsLag;
+    }
+
+    /**
+     * While the display is faster than the physics rate, fixed rate listeners are drawn a physics
+     * step behind, interpolated between the state they had before their last step, at 0, and the
+     * one they were stepped to, at 1. This adds a step of latency but never draws anything the
+     * physics did not reach, unlike extrapolating would. Displays no faster than the physics rate
+     * step on every frame and are drawn at the latest state.
+     *
+     * @return between 0 and 1, and 1 while no fixed rate listener runs
+     */
+    public double getPhysicsAlpha() {
+        if (physicsFrameTime < 0
+                || averageFrameInterval >= physicsStepMillis * (1 - PHYSICS_STEP_TOLERANCE)) {
+            return 1;
+        }
+        double span = lastPhysicsSteps * physicsStepMillis;
+        // the lag is at least minus the tolerance right after a step, and less than a step
+        // short of it otherwise
+        double alpha = (physicsLag + (PHYSICS_STEP_TOLERANCE - 1) * physicsStepMillis + span) / span;
+        return Math.max(0, Math.min(alpha, 1));
+    }
+
+    /**
+     * @return total time the fixed rate listeners were stepped through, in milliseconds
+     */
+    public long getPhysicsTimeMillis() {
+        return physicsClock;
+    }
+
+    private int findEntry(FrameListener listener) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).listener == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void doFrame(long frameTime) {
+        frameScheduled = false;
+        lastFrameTime = frameTime;
+        boolean anyActive = false;
+        boolean anyFixedRateActive = false;
+        boolean physicsAdvanced = false;
+        boolean measure = !statsListeners.isEmpty();
+        if (measure) {
+            Arrays.fill(orderNanos, 0);
+        }
+        // index based, listeners may register or activate others while being stepped
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (!entry.active) {
+                entry.lastFrameTime = -1;
+                continue;
+            }
+            long delta;
+            if (entry.fixedRate) {
+                if (!physicsAdvanced) {
+                    advancePhysicsClock(frameTime);
+                    physicsAdvanced = true;
+                }
+                anyFixedRateActive = true;
+                // for fixed rate entries the last frame time is kept on the physics clock
+                long last = entry.lastFrameTime < 0 ? previousPhysicsClock : entry.lastFrameTime;
+                delta = physicsClock - last;
+                if (delta <= 0) {
+                    anyActive = true;
+                    continue;
+                }
+                entry.lastFrameTime = physicsClock;
+            } else {
+                delta = entry.lastFrameTime < 0 ? FALLBACK_FRAME_DELAY : frameTime - entry.lastFrameTime;
+                delta = Math.max(0, Math.min(delta, MAX_FRAME_DELTA));
+                entry.lastFrameTime = frameTime;
+            }
+            if (measure) {
+                long start = System.nanoTime();
+                entry.active = entry.listener.doFrame(frameTime, delta);
+                orderNanos[entry.order] += System.nanoTime() - start;
+            } else {
+                entry.active = entry.listener.doFrame(frameTime, delta);
+            }
+            anyActive |= entry.active;
+        }
+        for (int i = 0; i < statsListeners.size(); i++) {
+            statsListeners.get(i).onFrameStats(frameTime, orderNanos);
+        }
+        if (!anyFixedRateActive) {
+            // restarted from the next frame a fixed rate listener is active in
+            physicsFrameTime = -1;
+        }
+        if (anyActive) {
+            scheduleFrame();
+        }
+    }
+
+    private void advancePhysicsClock(long frameTime) {
+        double frameDelta;
+        if (physicsFrameTime < 0) {
+            // the clock was idle, step right away
+            frameDelta = physicsStepMillis;
+            physicsLag = physicsStepMillis;
+        } else {
+            frameDelta = Math.max(0, Math.min(frameTime - physicsFrameTime, MAX_FRAME_DELTA));
+            physicsLag += frameDelta;
+            averageFrameInterval += (frameDelta - averageFrameInterval) * FRAME_INTERVAL_SMOOTHING;
+        }
+        physicsFrameTime = frameTime;
+        int steps = Math.max(0, (int) Math.floor(physicsLag / physicsStepMillis + PHYSICS_STEP_TOLERANCE));
+        if (steps == 0 && frameDelta >= physicsStepMillis * (1 - PHYSICS_STEP_TOLERANCE)) {
+            // displays no faster than the physics rate step on every frame
+            steps = 1;
+        }
+        if (steps > 0) {
+            lastPhysicsSteps = steps;
+        }
+        physicsLag -= steps * physicsStepMillis;
+        physicsTime += steps * physicsStepMillis;
+        previousPhysicsClock = physicsClock;
+        // whole milliseconds without drift, listeners get differences of these
+        physicsClock = Math.round(physicsTime);
+    }
+
+    private void scheduleFrame() {
+        if (frameScheduled) return;
+        frameScheduled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postFrameCallback();
+        } else {
+            if (handler == null) {
+                handler = new Handler(Looper.getMainLooper());
+            }
+            long delay = lastFrameTime < 0 ? 0
+                    : Math.max(0, lastFrameTime + FALLBACK_FRAME_DELAY - SystemClock.uptimeMillis());
+            handler.postDelayed(frameRunnable, delay);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (frameCallback == null) {
+            frameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    // choreographer frame times share the uptimeMillis time base
+                    FrameScheduler.this.doFrame(frameTimeNanos / 1000000);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) frameCallback);
+    }
+
+    /**
+     * Lets a {@link BaseSpringSystem} be stepped by the scheduler instead of its own looper.
+     */
+    private class SchedulerSpringLooper extends SpringLooper implements FrameListener {
+        private boolean running;
+
+        BaseSpringSystem getSpringSystem() {
+            return mSpringSystem;
+        }
+
+        @Override
+        public void start() {
+            running = true;
+            requestFrames(this);
+        }
+
+        @Override
+        public void stop() {
+            running = false;
+        }
+
+        @Override
+        public boolean doFrame(long frameTimeMillis, long deltaMillis) {
+            if (running) {
+                // calls stop() once every spring is at rest
+                mSpringSystem.loop(deltaMillis);
+            }
+            return running;
+        }
+    }
+}
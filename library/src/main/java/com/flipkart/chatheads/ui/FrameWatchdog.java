@@ -0,0 +1,245 @@
+package com.flipkart.chatheads.ui;
+
+/**
+ * Watches how long the frame loop of the library takes, that is spring stepping, arrangement
+ * callbacks and container updates, and steps visual quality down while frames go over budget.
+ * Each level drops one more decorative feature on top of the previous ones, from the cheapest to
+ * lose to the most visible. Quality is stepped back up one level at a time once frames have been
+ * well within budget for a while.
+ * <p>
+ * Only frames in which something moves are measured, so quality does not recover while the chat
+ * heads are idle, but neither is there anything to draw then.
+ * <p>
+ * The timings come from the shared {@link FrameScheduler} and cover the frame work of every chat
+ * head manager in the process. With more than one manager, each watchdog reacts to the load of
+ * all of them, and they step quality down and up together.
+ */
+public class FrameWatchdog implements FrameScheduler.FrameStatsListener {
+
+    public static final int QUALITY_FULL = 0;
+    /**
+     * The dashed path of {@link ChatHeadOverlayView} is not drawn
+     */
+    public static final int QUALITY_NO_OVERLAY_PATH = 1;
+    /**
+     * The shadow behind the close button is not shown
+     */
+    public static final int QUALITY_NO_CLOSE_BUTTON_SHADOW = 2;
+    /**
+     * Chat heads do not shrink while pressed
+     */
+    public static final int QUALITY_NO_PRESS_SCALE = 3;
+    /**
+     * Only the first {@link #SHALLOW_FOLLOWER_DEPTH} followers of the stack in
+     * {@link MinimizedArrangement} are shown
+     */
+    public static final int QUALITY_SHALLOW_FOLLOWERS = 4;
+    public static final int QUALITY_LOWEST = QUALITY_SHALLOW_FOLLOWERS;
+
+    public static final int SHALLOW_FOLLOWER_DEPTH = 2;
+
+    /**
+     * The part of a 60Hz frame the library may take, leaving the rest to drawing and to the app
+     */
+    public static final float DEFAULT_BUDGET_MILLIS = 4;
+
+    /**
+     * Number of recent frames over budget are counted in
+     */
+    private static final int WINDOW_FRAMES = 30;
+    /**
+     * Frames over budget within the window which step quality down. More than one, so that a
+     * single slow frame like the first one after a pause does not.
+     */
+    private static final int OVER_BUDGET_FRAMES_TO_STEP_DOWN = 4;
+    /**
+     * Consecutive frames within half the budget which step quality up
+     */
+    private static final int HEALTHY_FRAMES_TO_STEP_UP = 120;
+    /**
+     * Cap on how much longer a level must stay healthy after it was stepped down again soon after
+     * being stepped up to
+     */
+    private static final int MAX_STEP_UP_BACKOFF = 8;
+    /**
+     * Weight of the latest frame in the averages kept for debugging
+     */
+    private static final double AVERAGE_WEIGHT = 0.1;
+
+    private Listener listener;
+    private boolean enabled = true;
+    private long budgetNanos = (long) (DEFAULT_BUDGET_MILLIS * 1000000);
+    private int qualityLevel = QUALITY_FULL;
+    /**
+     * One bit per frame of the window, set if that frame went over budget
+     */
+    private int overBudgetWindow;
+    private int overBudgetInWindow;
+    private int healthyFrames;
+    private int stepUpBackoff = 1;
+    /**
+     * Frames since quality was last stepped up, or -1
+     */
+    private int framesSinceStepUp = -1;
+
+    private final double[] averageNanos = new double[FrameScheduler.ORDER_FLUSH + 1];
+    private int frameCount;
+    private int overBudgetFrameCount;
+
+    public interface Listener {
+        void onQualityLevelChanged(int qualityLevel);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param budgetMillis time the library may take per frame before it counts as over budget
+     */
+    public void setBudgetMillis(float budgetMillis) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("The frame budget must be positive");
+        }
+        budgetNanos = (long) (budgetMillis * 1000000);
+    }
+
+    public float getBudgetMillis() {
+        return budgetNanos / 1000000f;
+    }
+
+    /**
+     * Disabling goes back to full quality and keeps it there.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            resetWindow();
+            stepUpBackoff = 1;
+            framesSinceStepUp = -1;
+            setQualityLevel(QUALITY_FULL);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getQualityLevel() {
+        return qualityLevel;
+    }
+
+    public boolean isOverlayPathEnabled() {
+        return qualityLevel < QUALITY_NO_OVERLAY_PATH;
+    }
+
+    public boolean isCloseButtonShadowEnabled() {
+        return qualityLevel < QUALITY_NO_CLOSE_BUTTON_SHADOW;
+    }
+
+    public boolean isPressScaleEnabled() {
+        return qualityLevel < QUALITY_NO_PRESS_SCALE;
+    }
+
+    /**
+     * @return how many followers {@link MinimizedArrangement} may show behind the hero
+     */
+    public int getMaxFollowerDepth() {
+        return qualityLevel < QUALITY_SHALLOW_FOLLOWERS ? Integer.MAX_VALUE : SHALLOW_FOLLOWER_DEPTH;
+    }
+
+    @Override
+    public void onFrameStats(long frameTimeMillis, long[] orderNanos) {
+        long total = 0;
+        for (int i = 0; i < orderNanos.length; i++) {
+            total += orderNanos[i];
+            averageNanos[i] = frameCount == 0 ? orderNanos[i]
+                    : averageNanos[i] + (orderNanos[i] - averageNanos[i]) * AVERAGE_WEIGHT;
+        }
+        frameCount++;
+        boolean overBudget = total > budgetNanos;
+        if (overBudget) {
+            overBudgetFrameCount++;
+        }
+        if (!enabled) return;
+
+        int oldest = 1 << (WINDOW_FRAMES - 1);
+        if ((overBudgetWindow & oldest) != 0) {
+            overBudgetInWindow--;
+        }
+        overBudgetWindow = (overBudgetWindow << 1) & ((oldest << 1) - 1);
+        if (overBudget) {
+            overBudgetWindow |= 1;
+            overBudgetInWindow++;
+        }
+        if (framesSinceStepUp >= 0) {
+            framesSinceStepUp++;
+        }
+
+        if (overBudgetInWindow >= OVER_BUDGET_FRAMES_TO_STEP_DOWN) {
+            if (framesSinceStepUp >= 0 && framesSinceStepUp < HEALTHY_FRAMES_TO_STEP_UP) {
+                // the level just stepped up to could not be afforded, wait longer next time
+                stepUpBackoff = Math.min(stepUpBackoff * 2, MAX_STEP_UP_BACKOFF);
+            }
+            framesSinceStepUp = -1;
+            resetWindow();
+            if (qualityLevel < QUALITY_LOWEST) {
+                setQualityLevel(qualityLevel + 1);
+            }
+        } else if (total * 2 <= budgetNanos) {
+            healthyFrames++;
+            if (healthyFrames >= HEALTHY_FRAMES_TO_STEP_UP * stepUpBackoff
+                    && qualityLevel > QUALITY_FULL) {
+                healthyFrames = 0;
+                framesSinceStepUp = 0;
+                setQualityLevel(qualityLevel - 1);
+                if (qualityLevel == QUALITY_FULL) {
+                    stepUpBackoff = 1;
+                }
+            }
+        } else {
+            healthyFrames = 0;
+        }
+    }
+
+    /**
+     * @param order one of the orders of {@link FrameScheduler}
+     * @return average time the listeners of that order took per frame, in milliseconds
+     */
+    public double getAverageMillis(int order) {
+        return averageNanos[order] / 1000000;
+    }
+
+    /**
+     * @return number of frames measured since the last {@link #resetStats()}
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return number of frames over budget since the last {@link #resetStats()}
+     */
+    public int getOverBudgetFrameCount() {
+        return overBudgetFrameCount;
+    }
+
+    public void resetStats() {
+        frameCount = 0;
+        overBudgetFrameCount = 0;
+    }
+
+    private void resetWindow() {
+        overBudgetWindow = 0;
+        overBudgetInWindow = 0;
+        healthyFrames = 0;
+    }
+
+    private void setQualityLevel(int qualityLevel) {
+        if (this.qualityLevel == qualityLevel) return;
+        this.qualityLevel = qualityLevel;
+        if (listener != null) {
+            listener.onQualityLevelChanged(qualityLevel);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.flipkart.chatheads.ui;
+
+import android.support.v4.util.ArrayMap;
+import android.view.View;
+
+import com.facebook.rebound.SimpleSpringListener;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringListener;
+
+/**
+ * Puts animating views on a hardware layer and takes them off again once they settle, so that
+ * scale and alpha animations re-use the rendered view instead of re-drawing its content on
+ * every frame.
+ * <p>
+ * Each view keeps its layer while at least one hold on it is active. Springs can hold a view
+ * through {@link #createSpringListener(View)}. Views which already had a layer type set by
+ * someone else are left alone.
+ */
+public class HardwareLayerController {
+
+    private final ArrayMap<View, Integer> holds = new ArrayMap<>();
+    private boolean enabled = true;
+    private int promotionCount;
+
+    public void setEnabled(boolean enabled) {
+        if (!enabled) {
+            for (int i = holds.size() - 1; i >= 0; i--) {
+                release(holds.keyAt(i), true);
+            }
+        }
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Keeps the view on a hardware layer until a matching {@link #release(View)}.
+     */
+    public void acquire(View view) {
+        if (!enabled) return;
+        Integer count = holds.get(view);
+        if (count != null) {
+            holds.put(view, count + 1);
+        } else if (view.getLayerType() == View.LAYER_TYPE_NONE && view.isHardwareAccelerated()) {
+            holds.put(view, 1);
+            view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            promotionCount++;
+        }
+    }
+
+    public void release(View view) {
+        release(view, false);
+    }
+
+    /**
+     * Drops all holds on the view, e.g. when it is removed while still animating.
+     */
+    public void releaseAll(View view) {
+        release(view, true);
+    }
+
+    private void release(View view, boolean all) {
+        Integer count = holds.get(view);
+        if (count == null) return;
+        if (all || count <= 1) {
+            holds.remove(view);
+            view.setLayerType(View.LAYER_TYPE_NONE, null);
+        } else {
+            holds.put(view, count - 1);
+        }
+    }
+
+    public boolean isPromoted(View view) {
+        return holds.containsKey(view);
+    }
+
+    /**
+     * @return number of times a view was put on a hardware layer since the last
+     * {@link #resetPromotionCount()}. Meant for debugging.
+     */
+    public int getPromotionCount() {
+        return promotionCount;
+    }
+
+    public void resetPromotionCount() {
+        promotionCount = 0;
+    }
+
+    /**
+     * @return a listener which holds the view on a layer while the spring it is added to is moving
+     */
+    public SpringListener createSpringListener(final View view) {
+        return new SimpleSpringListener() {
+            private boolean holding;
+
+            @Override
+            public void onSpringActivate(Spring spring) {
+                if (!holding) {
+                    holding = true;
+                    acquire(view);
+                }
+            }
+
+            @Override
+            public void onSpringAtRest(Spring spring) {
+                if (holding) {
+                    holding = false;
+                    release(view);
+                }
+            }
+        };
+    }
+}
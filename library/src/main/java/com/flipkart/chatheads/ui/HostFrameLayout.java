@@ -1,26 +1,310 @@
 package com.flipkart.chatheads.ui;
 
 import android.content.Context;
+import android.os.Build;
+import android.view.Gravity;
 import android.view.KeyEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.FrameLayout;
 
+import java.util.ArrayList;
+
 /**
+ * Root view of a chat head container.
+ * <p>
+ * Children are fixed size and positioned through translation, so they are measured and laid out
+ * once and again only when they request it or when the size of this layout changes. Layout
+ * requests coming from children (or from adding, removing and reordering children) are not sent
+ * up the view tree. They are handled here just before the next draw and only touch the children
+ * which asked for it, e.g. the content panel. {@link ChatHeadManager#onMeasure(int, int)} is
+ * called only when the reported size changes or when {@link #requestManagerMeasure()} is called.
+ * <p>
+ * Children use {@link FrameLayout.LayoutParams}; gravity and margins are honoured.
+ * <p>
+ * Stacking is controlled through the drawing order ({@link #raiseChild(View)},
+ * {@link #lowerChild(View)}) so that changing it neither detaches children nor requests layout.
  * Created by kiran.kumar on 11/11/16.
  */
 public class HostFrameLayout extends FrameLayout {
     private final ChatHeadManager manager;
     private final ChatHeadContainer container;
+    private int reportedWidth;
+    private int reportedHeight;
+    private int lastReportedWidth;
+    private int lastReportedHeight;
+    private boolean managerMeasurePending;
+    private boolean localLayoutPending;
+    private boolean laidOut;
+    private boolean inLayoutPass;
+    private final ArrayList<View> raisedChildren = new ArrayList<>();
+    private final ArrayList<View> loweredChildren = new ArrayList<>();
+    private int[] drawingOrder = new int[0];
+    private boolean drawingOrderDirty;
+    private OnHierarchyChangeListener hierarchyChangeListener;
+    private final ViewTreeObserver.OnPreDrawListener localLayoutListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (localLayoutPending) {
+                localLayoutPending = false;
+                layoutRequestedChildren();
+                reportSizeToManager();
+            }
+            return true;
+        }
+    };
 
     public HostFrameLayout(Context context, ChatHeadContainer chatHeadContainer, ChatHeadManager manager) {
         super(context);
         this.manager = manager;
         this.container = chatHeadContainer;
+        setChildrenDrawingOrderEnabled(true);
+        super.setOnHierarchyChangeListener(new OnHierarchyChangeListener() {
+            @Override
+            public void onChildViewAdded(View parent, View child) {
+                drawingOrderDirty = true;
+                if (hierarchyChangeListener != null) {
+                    hierarchyChangeListener.onChildViewAdded(parent, child);
+                }
+            }
+
+            @Override
+            public void onChildViewRemoved(View parent, View child) {
+                raisedChildren.remove(child);
+                loweredChildren.remove(child);
+                drawingOrderDirty = true;
+                if (hierarchyChangeListener != null) {
+                    hierarchyChangeListener.onChildViewRemoved(parent, child);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void setOnHierarchyChangeListener(OnHierarchyChangeListener listener) {
+        this.hierarchyChangeListener = listener;
+    }
+
+    /**
+     * Draws the child above all other children. Later calls win over earlier ones.
+     */
+    public void raiseChild(View child) {
+        if (child.getParent() != this) return;
+        loweredChildren.remove(child);
+        int size = raisedChildren.size();
+        if (size > 0 && raisedChildren.get(size - 1) == child) return;
+        raisedChildren.remove(child);
+        raisedChildren.add(child);
+        onDrawingOrderChanged(child);
+    }
+
+    /**
+     * Draws the child below all other children. Later calls win over earlier ones.
+     */
+    public void lowerChild(View child) {
+        if (child.getParent() != this) return;
+        raisedChildren.remove(child);
+        int size = loweredChildren.size();
+        if (size > 0 && loweredChildren.get(size - 1) == child) return;
+        loweredChildren.remove(child);
+        loweredChildren.add(child);
+        onDrawingOrderChanged(child);
+    }
+
+    private void onDrawingOrderChanged(View child) {
+        drawingOrderDirty = true;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            // touch dispatch only follows the drawing order from lollipop,
+            // before that the child list itself has to be reordered
+            int index = indexOfChild(child);
+            if (loweredChildren.contains(child)) {
+                if (index != 0) {
+                    detachViewFromParent(index);
+                    attachViewToParent(child, 0, child.getLayoutParams());
+                }
+            } else if (index != getChildCount() - 1) {
+                detachViewFromParent(index);
+                attachViewToParent(child, -1, child.getLayoutParams());
+            }
+        }
+        invalidate();
+    }
+
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+        if (drawingOrderDirty || drawingOrder.length != childCount) {
+            updateDrawingOrder(childCount);
+        }
+        return drawingOrder[i];
+    }
+
+    private void updateDrawingOrder(int childCount) {
+        if (drawingOrder.length != childCount) {
+            drawingOrder = new int[childCount];
+        }
+        int position = 0;
+        for (int i = loweredChildren.size() - 1; i >= 0; i--) {
+            drawingOrder[position++] = indexOfChild(loweredChildren.get(i));
+        }
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if (!raisedChildren.contains(child) && !loweredChildren.contains(child)) {
+                drawingOrder[position++] = i;
+            }
+        }
+        for (int i = 0; i < raisedChildren.size(); i++) {
+            drawingOrder[position++] = indexOfChild(raisedChildren.get(i));
+        }
+        drawingOrderDirty = false;
+    }
+
+    @Override
+    public void requestLayout() {
+        if (!laidOut || inLayoutPass) {
+            super.requestLayout();
+            return;
+        }
+        if (!localLayoutPending) {
+            localLayoutPending = true;
+            // a draw pass is needed for the pre draw listener to run
+            invalidate();
+        }
+    }
+
+    @Override
+    public void setLayoutParams(ViewGroup.LayoutParams params) {
+        // our own size may change, so this has to go through a full layout
+        laidOut = false;
+        super.setLayoutParams(params);
+    }
+
+    /**
+     * Makes the manager re-read the size of this layout on the next frame, even if it did not change.
+     * This is how pending arrangement changes are applied.
+     */
+    public void requestManagerMeasure() {
+        managerMeasurePending = true;
+        requestLayout();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(localLayoutListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnPreDrawListener(localLayoutListener);
+        laidOut = false;
+        localLayoutPending = false;
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED
+                ? getSuggestedMinimumWidth() : MeasureSpec.getSize(widthMeasureSpec);
+        int height = MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.UNSPECIFIED
+                ? getSuggestedMinimumHeight() : MeasureSpec.getSize(heightMeasureSpec);
+        boolean sizeChanged = width != getMeasuredWidth() || height != getMeasuredHeight();
+        setMeasuredDimension(width, height);
+        inLayoutPass = true;
+        int childWidthSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+        int childHeightSpec = MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY);
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE && (sizeChanged || child.isLayoutRequested())) {
+                measureChildWithMargins(child, childWidthSpec, 0, childHeightSpec, 0);
+            }
+        }
+        inLayoutPass = false;
     }
 
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        super.onLayout(changed, left, top, right, bottom);
-        manager.onMeasure(getMeasuredHeight(), getMeasuredWidth());
+        localLayoutPending = false;
+        inLayoutPass = true;
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE && (changed || child.isLayoutRequested())) {
+                layoutChild(child);
+            }
+        }
+        inLayoutPass = false;
+        laidOut = true;
+        reportSizeToManager();
+    }
+
+    private void layoutRequestedChildren() {
+        inLayoutPass = true;
+        int widthSpec = MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.EXACTLY);
+        int heightSpec = MeasureSpec.makeMeasureSpec(getHeight(), MeasureSpec.EXACTLY);
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE && child.isLayoutRequested()) {
+                measureChildWithMargins(child, widthSpec, 0, heightSpec, 0);
+                layoutChild(child);
+            }
+        }
+        inLayoutPass = false;
+    }
+
+    private void layoutChild(View child) {
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        int width = child.getMeasuredWidth();
+        int height = child.getMeasuredHeight();
+        int gravity = lp.gravity == -1 ? Gravity.TOP | Gravity.START : lp.gravity;
+        int layoutDirection = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+                ? getLayoutDirection() : LAYOUT_DIRECTION_LTR;
+        int absoluteGravity = Gravity.getAbsoluteGravity(gravity, layoutDirection);
+        int childLeft;
+        switch (absoluteGravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+            case Gravity.CENTER_HORIZONTAL:
+                childLeft = (getWidth() - width) / 2 + lp.leftMargin - lp.rightMargin;
+                break;
+            case Gravity.RIGHT:
+                childLeft = getWidth() - width - lp.rightMargin;
+                break;
+            default:
+                childLeft = lp.leftMargin;
+        }
+        int childTop;
+        switch (gravity & Gravity.VERTICAL_GRAVITY_MASK) {
+            case Gravity.CENTER_VERTICAL:
+                childTop = (getHeight() - height) / 2 + lp.topMargin - lp.bottomMargin;
+                break;
+            case Gravity.BOTTOM:
+                childTop = getHeight() - height - lp.bottomMargin;
+                break;
+            default:
+                childTop = lp.topMargin;
+        }
+        child.layout(childLeft, childTop, childLeft + width, childTop + height);
+    }
+
+    private void reportSizeToManager() {
+        int width = reportedWidth > 0 && reportedHeight > 0 ? reportedWidth : getMeasuredWidth();
+        int height = reportedWidth > 0 && reportedHeight > 0 ? reportedHeight : getMeasuredHeight();
+        if (managerMeasurePending || width != lastReportedWidth || height != lastReportedHeight) {
+            managerMeasurePending = false;
+            lastReportedWidth = width;
+            lastReportedHeight = height;
+            manager.onMeasure(height, width);
+        }
+    }
+
+    /**
+     * Makes this layout report the given size to the manager instead of its own measured size.
+     * Used when the host window is smaller than the area the chat heads can move in.
+     * Pass 0 to go back to the measured size.
+     */
+    public void setReportedSize(int width, int height) {
+        if (width == reportedWidth && height == reportedHeight) return;
+        this.reportedWidth = width;
+        this.reportedHeight = height;
+        requestLayout();
     }
 
     @Override
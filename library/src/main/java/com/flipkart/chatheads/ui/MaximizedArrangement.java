@@ -11,6 +11,7 @@ import android.view.ViewGroup;
 import com.facebook.rebound.SimpleSpringListener;
 import com.facebook.rebound.Spring;
 import com.flipkart.chatheads.ChatHeadUtils;
+import com.flipkart.chatheads.ui.physics.FlingResolver;
 
 import java.io.Serializable;
 import java.util.List;
@@ -20,7 +21,6 @@ import java.util.Map;
 public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrangement {
     public static final String BUNDLE_HERO_INDEX_KEY = "hero_index";
     private static double MAX_DISTANCE_FROM_ORIGINAL;
-    private static int MIN_VELOCITY_TO_POSITION_BACK;
     private final Map<ChatHead, Point> positions = new ArrayMap<>();
     private ChatHeadManager<T> manager;
     private int maxWidth;
@@ -31,10 +31,20 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
     private int topPadding;
     private boolean isActive = false;
     private boolean isTransitioning = false;
+    private boolean arrowLayoutOnLayer = false;
     private Bundle extras;
+    private final ChatHeadTransition transition;
+    private final FlingResolver flingResolver = new FlingResolver(SpringConfigsHolder.DRAGGING.friction);
+    private final ChatHeadTransition.Listener transitionListener = new ChatHeadTransition.Listener() {
+        @Override
+        public void onTransitionEnd(ChatHeadTransition transition) {
+            isTransitioning = false;
+        }
+    };
 
     public MaximizedArrangement(ChatHeadManager<T> manager) {
         this.manager = manager;
+        this.transition = new ChatHeadTransition(manager);
     }
 
 
@@ -49,7 +59,6 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
         this.manager = container;
         this.maxWidth = maxWidth;
         this.maxHeight = maxHeight;
-        MIN_VELOCITY_TO_POSITION_BACK = ChatHeadUtils.dpToPx(container.getDisplayMetrics(), 50);
         MAX_DISTANCE_FROM_ORIGINAL = ChatHeadUtils.dpToPx(container.getContext(), 10);
         isActive = true;
         List<ChatHead> chatHeads = container.getChatHeads();
@@ -63,6 +72,8 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
         if (heroIndex < 0 || heroIndex > chatHeads.size() - 1) {
             heroIndex = 0;
         }
+        transition.cancel();
+        boolean scripted = animated && transition.isEnabled();
         if (chatHeads.size() > 0 && heroIndex < chatHeads.size()) {
             currentChatHead = chatHeads.get(heroIndex);
             maxDistanceFromOriginal = (int) MAX_DISTANCE_FROM_ORIGINAL;
@@ -78,13 +89,17 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
                 positions.put(chatHead, new Point(xPos, topPadding));
                 horizontalSpring.setAtRest();
                 horizontalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
+                Spring verticalSpring = chatHead.getVerticalSpring();
+                verticalSpring.setAtRest();
+                verticalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
+                if (scripted) {
+                    transition.add(chatHead, xPos, topPadding, SpringConfigsHolder.NOT_DRAGGING);
+                    continue;
+                }
                 horizontalSpring.setEndValue(xPos);
                 if (!animated) {
                     horizontalSpring.setCurrentValue(xPos);
                 }
-                Spring verticalSpring = chatHead.getVerticalSpring();
-                verticalSpring.setAtRest();
-                verticalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
                 verticalSpring.setEndValue(topPadding);
                 if (!animated) {
                     verticalSpring.setCurrentValue(topPadding);
@@ -100,6 +115,10 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
             });
             container.showOverlayView(animated);
             selectChatHead(currentChatHead);
+            if (scripted) {
+                transition.start(transitionListener);
+                return;
+            }
             currentChatHead.getVerticalSpring().addListener(new SimpleSpringListener() {
                 @Override
                 public void onSpringAtRest(Spring spring) {
@@ -126,8 +145,14 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
     }
 
 
+    @Override
+    public void onDestroy() {
+        transition.release();
+    }
+
     @Override
     public void onDeactivate(int maxWidth, int maxHeight) {
+        transition.cancel();
         if (currentChatHead != null) {
             manager.detachView(currentChatHead, getArrowLayout());
         }
@@ -142,15 +167,19 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
     public boolean handleTouchUp(ChatHead activeChatHead, int xVelocity, int yVelocity, Spring activeHorizontalSpring, Spring activeVerticalSpring, boolean wasDragging) {
 
 
-        if (xVelocity == 0 && yVelocity == 0) {
-            // this is a hack. If both velocities are 0, onSprintUpdate is not called and the chat head remains whereever it is
-            // so we give a a negligible velocity to artificially fire onSpringUpdate
-            xVelocity = 1;
-            yVelocity = 1;
-        }
+        if (activeChatHead.getState() == ChatHead.State.FREE) {
+            settle(activeChatHead, xVelocity, yVelocity, activeHorizontalSpring, activeVerticalSpring);
+        } else {
+            if (xVelocity == 0 && yVelocity == 0) {
+                // this is a hack. If both velocities are 0, onSprintUpdate is not called and the chat head remains whereever it is
+                // so we give a a negligible velocity to artificially fire onSpringUpdate
+                xVelocity = 1;
+                yVelocity = 1;
+            }
 
-        activeHorizontalSpring.setVelocity(xVelocity);
-        activeVerticalSpring.setVelocity(yVelocity);
+            activeHorizontalSpring.setVelocity(xVelocity);
+            activeVerticalSpring.setVelocity(yVelocity);
+        }
 
 
         if (wasDragging) {
@@ -184,11 +213,38 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
         manager.detachView(chatHead, getArrowLayout());
     }
 
-    private void positionToOriginal(ChatHead activeChatHead, Spring activeHorizontalSpring, Spring activeVerticalSpring) {
+    /**
+     * Resolves where a released chat head would glide to. It is captured if the glide passes the
+     * close button, otherwise it goes back to its place in the row.
+     */
+    private void settle(ChatHead activeChatHead, int xVelocity, int yVelocity, Spring activeHorizontalSpring, Spring activeVerticalSpring) {
+        flingResolver.setBounds(0, 0, maxWidth - manager.getConfig().getHeadWidth(), maxHeight - manager.getConfig().getHeadHeight());
+        if (!activeChatHead.isSticky() && !manager.getConfig().isCloseButtonHidden()) {
+            int[] coords = manager.getChatHeadCoordsForCloseButton(activeChatHead);
+            flingResolver.setCaptureZone(coords[0], coords[1], activeChatHead.CLOSE_ATTRACTION_THRESHOLD);
+        } else {
+            flingResolver.clearCaptureZone();
+        }
+        flingResolver.resolve(activeHorizontalSpring.getCurrentValue(), activeVerticalSpring.getCurrentValue(), xVelocity, yVelocity);
+
+        if (flingResolver.isCaptured()) {
+            activeChatHead.setState(ChatHead.State.CAPTURED);
+            activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.CAPTURING);
+            activeVerticalSpring.setSpringConfig(SpringConfigsHolder.CAPTURING);
+            activeHorizontalSpring.setVelocity(xVelocity);
+            activeVerticalSpring.setVelocity(yVelocity);
+            activeHorizontalSpring.setEndValue(flingResolver.getLandingX());
+            activeVerticalSpring.setEndValue(flingResolver.getLandingY());
+        } else {
+            positionToOriginal(activeChatHead, activeHorizontalSpring, activeVerticalSpring, flingResolver.getLandingX(), flingResolver.getLandingY(), xVelocity, yVelocity);
+        }
+    }
+
+    private void positionToOriginal(ChatHead activeChatHead, Spring activeHorizontalSpring, Spring activeVerticalSpring, double landingX, double landingY, double xVelocity, double yVelocity) {
         if (activeChatHead.isSticky()) {
             Point point = positions.get(activeChatHead);
             if (point != null) {
-                double distanceFromOriginal = Math.hypot(point.x - activeHorizontalSpring.getCurrentValue(), point.y - activeVerticalSpring.getCurrentValue());
+                double distanceFromOriginal = Math.hypot(point.x - landingX, point.y - landingY);
                 if (distanceFromOriginal > MAX_DISTANCE_FROM_ORIGINAL) {
                     deactivate();
                     return;
@@ -201,10 +257,10 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
             Point point = positions.get(activeChatHead);
             if (point != null) {
                 activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                activeHorizontalSpring.setVelocity(0);
+                activeHorizontalSpring.setVelocity(xVelocity);
                 activeHorizontalSpring.setEndValue(point.x);
                 activeVerticalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                activeVerticalSpring.setVelocity(0);
+                activeVerticalSpring.setVelocity(yVelocity);
                 activeVerticalSpring.setEndValue(point.y);
             }
         }
@@ -212,50 +268,18 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
     }
 
     @Override
-    public void onSpringUpdate(ChatHead activeChatHead, boolean isDragging, int maxWidth, int maxHeight, Spring spring, Spring activeHorizontalSpring, Spring activeVerticalSpring, int totalVelocity) {
-        /** Bounds Check **/
-        if (spring == activeHorizontalSpring && !isDragging) {
-            double xPosition = activeHorizontalSpring.getCurrentValue();
-            if (xPosition + manager.getConfig().getHeadWidth() > maxWidth && activeHorizontalSpring.getSpringConfig() != SpringConfigsHolder.NOT_DRAGGING && !activeHorizontalSpring.isOvershooting()) {
-                positionToOriginal(activeChatHead, activeHorizontalSpring, activeVerticalSpring);
-            }
-            if (xPosition < 0 && activeHorizontalSpring.getSpringConfig() != SpringConfigsHolder.NOT_DRAGGING && !activeHorizontalSpring.isOvershooting()) {
-                positionToOriginal(activeChatHead, activeHorizontalSpring, activeVerticalSpring);
-            }
-        } else if (spring == activeVerticalSpring && !isDragging) {
-            double yPosition = activeVerticalSpring.getCurrentValue();
-
-            if (yPosition + manager.getConfig().getHeadHeight() > maxHeight && activeHorizontalSpring.getSpringConfig() != SpringConfigsHolder.NOT_DRAGGING && !activeHorizontalSpring.isOvershooting()) {
-                positionToOriginal(activeChatHead, activeHorizontalSpring, activeVerticalSpring);
-            }
-            if (yPosition < 0 && activeHorizontalSpring.getSpringConfig() != SpringConfigsHolder.NOT_DRAGGING && !activeHorizontalSpring.isOvershooting()) {
-                positionToOriginal(activeChatHead, activeHorizontalSpring, activeVerticalSpring);
-            }
-
-        }
-
-        /** position it back **/
-        if (!isDragging && totalVelocity < MIN_VELOCITY_TO_POSITION_BACK && activeHorizontalSpring.getSpringConfig() == SpringConfigsHolder.DRAGGING) {
-            positionToOriginal(activeChatHead, activeHorizontalSpring, activeVerticalSpring);
-
-        }
-
+    public void onChatHeadMoved(ChatHead activeChatHead, ChatHeadMotion motion) {
+        boolean isDragging = motion.isDragging();
+        Spring activeHorizontalSpring = activeChatHead.getHorizontalSpring();
+        Spring activeVerticalSpring = activeChatHead.getVerticalSpring();
         if (activeChatHead == currentChatHead)
 
             showOrHideView(activeChatHead);
 
         if (!isDragging) {
             /** Capturing check **/
-            int[] coords = manager.getChatHeadCoordsForCloseButton(activeChatHead);
-            double distanceCloseButtonFromHead = manager.getDistanceCloseButtonFromHead((float) activeHorizontalSpring.getCurrentValue() + manager.getConfig().getHeadWidth() / 2, (float) activeVerticalSpring.getCurrentValue() + manager.getConfig().getHeadHeight() / 2);
-
-            if (distanceCloseButtonFromHead < activeChatHead.CLOSE_ATTRACTION_THRESHOLD && activeHorizontalSpring.getSpringConfig() == SpringConfigsHolder.DRAGGING && activeVerticalSpring.getSpringConfig() == SpringConfigsHolder.DRAGGING && !activeChatHead.isSticky()) {
-
-                activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                activeVerticalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                activeChatHead.setState(ChatHead.State.CAPTURED);
-            }
             if (activeChatHead.getState() == ChatHead.State.CAPTURED && activeHorizontalSpring.getSpringConfig() != SpringConfigsHolder.CAPTURING) {
+                int[] coords = manager.getChatHeadCoordsForCloseButton(activeChatHead);
                 activeHorizontalSpring.setAtRest();
                 activeVerticalSpring.setAtRest();
                 activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.CAPTURING);
@@ -309,17 +333,33 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
     private void hideView() {
         UpArrowLayout arrowLayout = getArrowLayout();
         arrowLayout.setVisibility(View.GONE);
+        setArrowLayoutOnLayer(false);
 
     }
 
     private void showView(ChatHead activeChatHead, double dx, double dy, double distanceFromOriginal) {
         UpArrowLayout arrowLayout = getArrowLayout();
         arrowLayout.setVisibility(View.VISIBLE);
-        arrowLayout.setTranslationX((float) dx);
-        arrowLayout.setTranslationY((float) dy);
+        manager.getChatHeadContainer().setViewPosition(arrowLayout, (int) dx, (int) dy);
         arrowLayout.setAlpha(1f - ((float) distanceFromOriginal / (float) maxDistanceFromOriginal));
+        // the panel only moves while the hero is away from its slot
+        setArrowLayoutOnLayer(distanceFromOriginal > 0);
     }
 
+    private void setArrowLayoutOnLayer(boolean onLayer) {
+        if (onLayer == arrowLayoutOnLayer) return;
+        arrowLayoutOnLayer = onLayer;
+        if (onLayer) {
+            manager.getHardwareLayerController().acquire(getArrowLayout());
+        } else {
+            manager.getHardwareLayerController().release(getArrowLayout());
+        }
+    }
+
+    /**
+     * @deprecated reorders the children of the parent, use {@link ChatHeadContainer#sendToBack(View)}
+     */
+    @Deprecated
     public static void sendViewToBack(final View child) {
         final ViewGroup parent = (ViewGroup) child.getParent();
         if (null != parent && parent.indexOfChild(child) != 0) {
@@ -332,7 +372,7 @@ public class MaximizedArrangement<T extends Serializable> extends ChatHeadArrang
         UpArrowLayout arrowLayout = getArrowLayout();
         getArrowLayout().removeAllViews();
         manager.attachView(activeChatHead, arrowLayout);
-        sendViewToBack(manager.getOverlayView());
+        manager.getChatHeadContainer().sendToBack(manager.getOverlayView());
         Point point = positions.get(activeChatHead);
         if (point != null) {
             int padding = manager.getConfig().getHeadVerticalSpacing(maxWidth, maxHeight);
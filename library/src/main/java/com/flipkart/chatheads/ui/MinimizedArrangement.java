@@ -3,12 +3,18 @@ package com.flipkart.chatheads.ui;
 import android.graphics.Point;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.view.View;
 import com.facebook.rebound.SimpleSpringListener;
 import com.facebook.rebound.Spring;
-import com.facebook.rebound.SpringChain;
+import com.facebook.rebound.SpringConfig;
 import com.facebook.rebound.SpringListener;
 import com.flipkart.chatheads.ChatHeadUtils;
+import com.flipkart.chatheads.ui.physics.FlingResolver;
+import com.flipkart.chatheads.ui.physics.FollowerChain;
+import com.flipkart.chatheads.ui.physics.FollowerEngine;
+import com.flipkart.chatheads.ui.physics.TrailFollowers;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrangement {
@@ -17,7 +23,7 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
     public static final String BUNDLE_HERO_RELATIVE_X_KEY = "hero_relative_x";
     public static final String BUNDLE_HERO_RELATIVE_Y_KEY = "hero_relative_y";
     private static int MAX_VELOCITY_FOR_IDLING;
-    private static int MIN_VELOCITY_TO_POSITION_BACK;
+    private static int MIN_VELOCITY_TO_PICK_EDGE;
     private float DELTA = 0;
     private float currentDelta = 0;
     private int idleStateX = Integer.MIN_VALUE;
@@ -26,8 +32,48 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
     private int maxHeight;
     private boolean hasActivated = false;
     private ChatHeadManager<T> manager;
-    private SpringChain horizontalSpringChain;
-    private SpringChain verticalSpringChain;
+    /**
+     * Same feel as the attachment springs of Rebound's SpringChain, which this used to be built on
+     */
+    private static final SpringConfig FOLLOWER_CONFIG = SpringConfig.fromOrigamiTensionAndFriction(70, 10);
+    /**
+     * Time by which each chat head trails the one in front of it when following the hero's path
+     */
+    private static final double TRAIL_LAG_PER_HEAD = 0.05;
+    /**
+     * The non-hero chat heads, each following the one added after it and the last added one
+     * following the hero
+     */
+    private FollowerEngine<ChatHead> followers = new FollowerChain<>(4, FOLLOWER_CONFIG.tension,
+            FOLLOWER_CONFIG.friction);
+    private final FollowerEngine.Listener<ChatHead> followerListener = new FollowerEngine.Listener<ChatHead>() {
+        @Override
+        public void onFollowerMoved(ChatHead chatHead, double x, double y) {
+            if (chatHead.getHorizontalSpring() == null) return;
+            chatHead.getHorizontalSpring().setCurrentValue(x);
+            chatHead.getVerticalSpring().setCurrentValue(y);
+        }
+    };
+    private boolean followersActive;
+    private int maxFollowerDepth = Integer.MAX_VALUE;
+    /**
+     * Chat heads left out of the stack because it is deeper than {@link #maxFollowerDepth}. They
+     * are hidden under the hero and not stepped.
+     */
+    private final List<ChatHead> parkedChatHeads = new ArrayList<>();
+    private final FlingResolver flingResolver = new FlingResolver(SpringConfigsHolder.DRAGGING.friction);
+    private final FrameScheduler.FrameListener followerStep = new FrameScheduler.FrameListener() {
+        @Override
+        public boolean doFrame(long frameTimeMillis, long deltaMillis) {
+            if (!followersActive || followers.size() == 0 || hero == null || hero.getHorizontalSpring() == null) {
+                return false;
+            }
+            followers.setLinkOffset(-currentDelta, 0);
+            followers.setLeaderPosition(hero.getHorizontalSpring().getCurrentValue(),
+                    hero.getVerticalSpring().getCurrentValue());
+            return followers.advance(deltaMillis / 1000.0);
+        }
+    };
     private ChatHead hero;
     private double relativeXPosition = -1;
     private double relativeYPosition = -1;
@@ -38,15 +84,15 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
             currentDelta = (float) ((float) DELTA * (maxWidth / 2 - spring.getCurrentValue()) / (
                     maxWidth
                             / 2));
-            if (horizontalSpringChain != null) {
-                horizontalSpringChain.getControlSpring().setCurrentValue(spring.getCurrentValue());
+            if (followersActive) {
+                FrameScheduler.getInstance().requestFrames(followerStep);
             }
         }
 
         @Override
         public void onSpringAtRest(Spring spring) {
             super.onSpringAtRest(spring);
-            if (isTransitioning) {
+            if (isTransitioning && !transition.isRunning()) {
                 isTransitioning = false;
             }
         }
@@ -54,24 +100,36 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
     private SpringListener verticalHeroListener = new SimpleSpringListener() {
         @Override
         public void onSpringUpdate(Spring spring) {
-            if (verticalSpringChain != null) {
-                verticalSpringChain.getControlSpring().setCurrentValue(spring.getCurrentValue());
+            if (followersActive) {
+                FrameScheduler.getInstance().requestFrames(followerStep);
             }
         }
 
         @Override
         public void onSpringAtRest(Spring spring) {
             super.onSpringAtRest(spring);
-            if (isTransitioning) {
+            if (isTransitioning && !transition.isRunning()) {
                 isTransitioning = false;
             }
         }
     };
     private boolean isTransitioning;
+    private final ChatHeadTransition transition;
+    private final ChatHeadTransition.Listener transitionListener = new ChatHeadTransition.Listener() {
+        @Override
+        public void onTransitionEnd(ChatHeadTransition transition) {
+            isTransitioning = false;
+        }
+    };
 
     public MinimizedArrangement(ChatHeadManager manager) {
         this.manager = manager;
         DELTA = ChatHeadUtils.dpToPx(this.manager.getContext(), 5);
+        // registered before the follower step, which reads where the transition put the hero
+        transition = new ChatHeadTransition(manager);
+        followers.setListener(followerListener);
+        // stepped after the spring system of the chat heads, so followers see this frame's hero
+        FrameScheduler.getInstance().addFrameListener(followerStep, FrameScheduler.ORDER_PHYSICS);
     }
 
     public void setIdleStateX(int idleStateX) {
@@ -86,6 +144,101 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
         return new Point(idleStateX, idleStateY);
     }
 
+    /**
+     * Makes the stacked chat heads replay the path of the hero with a delay instead of each one
+     * following the one in front of it on a spring. Cheaper with many chat heads, and the stack
+     * bends along the way the hero took.
+     */
+    public void setTrailFollowingEnabled(boolean enabled) {
+        if (enabled == isTrailFollowingEnabled()) return;
+        boolean wasActive = followersActive;
+        if (wasActive) {
+            onDeactivate(maxWidth, maxHeight);
+        }
+        if (enabled) {
+            followers = new TrailFollowers<>(TRAIL_LAG_PER_HEAD);
+        } else {
+            followers = new FollowerChain<>(4, FOLLOWER_CONFIG.tension, FOLLOWER_CONFIG.friction);
+        }
+        followers.setListener(followerListener);
+        if (wasActive) {
+            onActivate(manager, getRetainBundle(), maxWidth, maxHeight, true);
+        }
+    }
+
+    public boolean isTrailFollowingEnabled() {
+        return followers instanceof TrailFollowers;
+    }
+
+    /**
+     * Limits how many chat heads are shown stacked behind the hero. The oldest ones beyond that
+     * are hidden and come back when there is room again.
+     */
+    public void setMaxFollowerDepth(int maxFollowerDepth) {
+        if (maxFollowerDepth < 0) {
+            throw new IllegalArgumentException("The follower depth cannot be negative");
+        }
+        if (this.maxFollowerDepth == maxFollowerDepth) return;
+        this.maxFollowerDepth = maxFollowerDepth;
+        if (followersActive) {
+            applyFollowerDepth();
+            FrameScheduler.getInstance().requestFrames(followerStep);
+        }
+    }
+
+    public int getMaxFollowerDepth() {
+        return maxFollowerDepth;
+    }
+
+    /**
+     * Hides the chat heads beyond {@link #maxFollowerDepth}, oldest first, and brings back hidden
+     * ones there is room for.
+     */
+    private void applyFollowerDepth() {
+        if (hero == null || hero.getHorizontalSpring() == null) return;
+        List<ChatHead<T>> chatHeads = manager.getChatHeads();
+        int toPark = chatHeads.size() - 1 - maxFollowerDepth;
+        for (int i = 0; i < chatHeads.size(); i++) {
+            ChatHead chatHead = chatHeads.get(i);
+            if (chatHead == hero) continue;
+            boolean park = toPark > 0;
+            toPark--;
+            boolean parked = parkedChatHeads.contains(chatHead);
+            if (park && !parked) {
+                followers.remove(chatHead);
+                chatHead.setVisibility(View.INVISIBLE);
+                parkedChatHeads.add(chatHead);
+            } else if (!park && parked) {
+                parkedChatHeads.remove(chatHead);
+                moveUnderHero(chatHead);
+                chatHead.setVisibility(View.VISIBLE);
+                // comes out from under the hero
+                followers.add(chatHead, chatHead.getHorizontalSpring().getCurrentValue(),
+                        chatHead.getVerticalSpring().getCurrentValue());
+                manager.getChatHeadContainer().bringToFront(chatHead);
+                manager.getChatHeadContainer().bringToFront(hero);
+            }
+        }
+    }
+
+    private void unparkAll() {
+        for (int i = 0; i < parkedChatHeads.size(); i++) {
+            ChatHead chatHead = parkedChatHeads.get(i);
+            if (hero != null && hero.getHorizontalSpring() != null) {
+                // where it would have been, rather than where it was hidden
+                moveUnderHero(chatHead);
+            }
+            chatHead.setVisibility(View.VISIBLE);
+        }
+        parkedChatHeads.clear();
+    }
+
+    private void moveUnderHero(ChatHead chatHead) {
+        if (chatHead.getHorizontalSpring() == null) return;
+        chatHead.getHorizontalSpring().setCurrentValue(hero.getHorizontalSpring().getCurrentValue());
+        chatHead.getVerticalSpring().setCurrentValue(hero.getVerticalSpring().getCurrentValue());
+    }
+
     @Override
     public void setContainer(ChatHeadManager container) {
         this.manager = container;
@@ -95,12 +248,13 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
     public void onActivate(ChatHeadManager container, Bundle extras, int maxWidth, int maxHeight,
             boolean animated) {
         isTransitioning = true;
-        if (horizontalSpringChain != null || verticalSpringChain != null) {
+        transition.cancel();
+        if (followersActive) {
             onDeactivate(maxWidth, maxHeight);
         }
 
-        MIN_VELOCITY_TO_POSITION_BACK = ChatHeadUtils.dpToPx(container.getDisplayMetrics(), 600);
-        MAX_VELOCITY_FOR_IDLING = ChatHeadUtils.dpToPx(container.getDisplayMetrics(), 1);
+        MIN_VELOCITY_TO_PICK_EDGE = ChatHeadUtils.dpToPx(container.getContext(), 50);
+        MAX_VELOCITY_FOR_IDLING = ChatHeadUtils.dpToPx(container.getContext(), 1);
         int heroIndex = 0;
         this.extras = extras;
         if (extras != null) {
@@ -116,38 +270,18 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
         if (heroIndex < chatHeads.size()) {
             hero = chatHeads.get(heroIndex);
             hero.setHero(true);
-            horizontalSpringChain = SpringChain.create();
-            verticalSpringChain = SpringChain.create();
+            followersActive = true;
             for (int i = 0; i < chatHeads.size(); i++) {
                 final ChatHead chatHead = chatHeads.get(i);
                 if (chatHead != hero) {
                     chatHead.setHero(false);
-                    horizontalSpringChain.addSpring(new SimpleSpringListener() {
-                        @Override
-                        public void onSpringUpdate(Spring spring) {
-                            int index = horizontalSpringChain.getAllSprings().indexOf(spring);
-                            int diff = index - horizontalSpringChain.getAllSprings().size() + 1;
-                            chatHead.getHorizontalSpring()
-                                    .setCurrentValue(
-                                            spring.getCurrentValue() + diff * currentDelta);
-                        }
-                    });
-                    Spring currentSpring = horizontalSpringChain.getAllSprings()
-                            .get(horizontalSpringChain.getAllSprings().size() - 1);
-                    currentSpring.setCurrentValue(chatHead.getHorizontalSpring().getCurrentValue());
-                    verticalSpringChain.addSpring(new SimpleSpringListener() {
-                        @Override
-                        public void onSpringUpdate(Spring spring) {
-                            chatHead.getVerticalSpring().setCurrentValue(spring.getCurrentValue());
-                        }
-                    });
-                    currentSpring = verticalSpringChain.getAllSprings()
-                            .get(verticalSpringChain.getAllSprings().size() - 1);
-                    currentSpring.setCurrentValue(chatHead.getVerticalSpring().getCurrentValue());
+                    followers.add(chatHead, chatHead.getHorizontalSpring().getCurrentValue(),
+                            chatHead.getVerticalSpring().getCurrentValue());
                     manager.getChatHeadContainer().bringToFront(chatHead);
                     zIndex++;
                 }
             }
+            applyFollowerDepth();
             String roundedX = String.format("%.2f", relativeXPosition);
             String roundedY = String.format("%.2f", relativeYPosition);
             roundedX = roundedX.replace("-", "").replace(",", "");
@@ -174,12 +308,6 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
                     && hero.getHorizontalSpring() != null
                     && hero.getVerticalSpring() != null) {
                 manager.getChatHeadContainer().bringToFront(hero);
-                horizontalSpringChain.addSpring(new SimpleSpringListener() {
-                });
-                verticalSpringChain.addSpring(new SimpleSpringListener() {
-                });
-                horizontalSpringChain.setControlSpringIndex(chatHeads.size() - 1);
-                verticalSpringChain.setControlSpringIndex(chatHeads.size() - 1);
 
                 hero.getHorizontalSpring().addListener(horizontalHeroListener);
                 hero.getVerticalSpring().addListener(verticalHeroListener);
@@ -190,7 +318,10 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
                     hero.getHorizontalSpring().setCurrentValue(idleStateX - 1, true);
                 }
 
-                if (animated) {
+                boolean scripted = animated && transition.isEnabled();
+                if (scripted) {
+                    // moved together with the vertical spring below
+                } else if (animated) {
                     hero.getHorizontalSpring().setEndValue(idleStateX);
                 } else {
                     hero.getHorizontalSpring().setCurrentValue(idleStateX, true);
@@ -201,7 +332,10 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
                     //safety check so that spring animates correctly
                     hero.getVerticalSpring().setCurrentValue(idleStateY - 1, true);
                 }
-                if (animated) {
+                if (scripted) {
+                    transition.add(hero, idleStateX, idleStateY, SpringConfigsHolder.NOT_DRAGGING);
+                    transition.start(transitionListener);
+                } else if (animated) {
                     hero.getVerticalSpring().setEndValue(idleStateY);
                 } else {
                     hero.getVerticalSpring().setCurrentValue(idleStateY, true);
@@ -239,19 +373,81 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
             chatHead.getVerticalSpring()
                     .setCurrentValue(hero.getVerticalSpring().getCurrentValue());
         }
-
-        onActivate(manager, getRetainBundle(), maxWidth, maxHeight, animated);
+        if (!followersActive || hero == null) {
+            onActivate(manager, getRetainBundle(), maxWidth, maxHeight, animated);
+            return;
+        }
+        // joins the stack right behind the hero, nobody else is touched
+        chatHead.setHero(false);
+        followers.add(chatHead, chatHead.getHorizontalSpring().getCurrentValue(),
+                chatHead.getVerticalSpring().getCurrentValue());
+        manager.getChatHeadContainer().bringToFront(chatHead);
+        manager.getChatHeadContainer().bringToFront(hero);
+        applyFollowerDepth();
+        FrameScheduler.getInstance().requestFrames(followerStep);
     }
 
     @Override
     public void onChatHeadRemoved(ChatHead removed) {
         manager.detachView(removed, manager.getArrowLayout());
         manager.removeView(removed, manager.getArrowLayout());
+        if (!followersActive) {
+            if (removed == hero) {
+                hero = null;
+            }
+            onActivate(manager, null, maxWidth, maxHeight, true);
+            return;
+        }
         if (removed == hero) {
+            // its springs are gone already, and with them the listeners
             hero = null;
+            ChatHead next = followers.getFront();
+            if (next != null) {
+                followers.remove(next);
+            } else if (!parkedChatHeads.isEmpty()) {
+                // the whole stack was hidden
+                next = parkedChatHeads.remove(parkedChatHeads.size() - 1);
+                next.setVisibility(View.VISIBLE);
+            }
+            if (next != null) {
+                setHero(next);
+                moveHero(idleStateX, idleStateY);
+            }
+        } else {
+            followers.remove(removed);
+            parkedChatHeads.remove(removed);
+        }
+        applyFollowerDepth();
+        FrameScheduler.getInstance().requestFrames(followerStep);
+    }
+
+    private void setHero(ChatHead chatHead) {
+        if (hero != null) {
+            hero.setHero(false);
+            if (hero.getHorizontalSpring() != null) {
+                hero.getHorizontalSpring().removeListener(horizontalHeroListener);
+                hero.getVerticalSpring().removeListener(verticalHeroListener);
+            }
         }
+        hero = chatHead;
+        hero.setHero(true);
+        hero.getHorizontalSpring().addListener(horizontalHeroListener);
+        hero.getVerticalSpring().addListener(verticalHeroListener);
+        manager.getChatHeadContainer().bringToFront(hero);
+    }
 
-        onActivate(manager, null, maxWidth, maxHeight, true);
+    private void moveHero(int x, int y) {
+        isTransitioning = true;
+        transition.cancel();
+        hero.getHorizontalSpring().setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
+        hero.getVerticalSpring().setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
+        if (transition.isEnabled()) {
+            transition.add(hero, x, y, SpringConfigsHolder.NOT_DRAGGING);
+            transition.start(transitionListener);
+        } else {
+            hero.getHorizontalSpring().setEndValue(x);
+            hero.getVerticalSpring().setEndValue(y);
+        }
     }
 
     @Override
@@ -265,28 +461,26 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
         //manager.toggleArrangement();
     }
 
+    @Override
+    public void onDestroy() {
+        if (followersActive) {
+            onDeactivate(maxWidth, maxHeight);
+        }
+        transition.release();
+        FrameScheduler.getInstance().removeFrameListener(followerStep);
+    }
+
     @Override
     public void onDeactivate(int maxWidth, int maxHeight) {
         hasActivated = false;
+        transition.cancel();
         if (hero != null) {
             hero.getHorizontalSpring().removeListener(horizontalHeroListener);
             hero.getVerticalSpring().removeListener(verticalHeroListener);
         }
-        if (horizontalSpringChain != null) {
-            List<Spring> allSprings = horizontalSpringChain.getAllSprings();
-            for (Spring spring : allSprings) {
-                spring.destroy();
-            }
-        }
-        if (verticalSpringChain != null) {
-            List<Spring> allSprings = verticalSpringChain.getAllSprings();
-            for (Spring spring : allSprings) {
-                spring.destroy();
-            }
-        }
-
-        horizontalSpringChain = null;
-        verticalSpringChain = null;
+        followersActive = false;
+        followers.clear();
+        unparkAll();
     }
 
     @Override
@@ -308,42 +502,57 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
     private void settleToClosest(ChatHead activeChatHead, int xVelocity, int yVelocity) {
         Spring activeHorizontalSpring = activeChatHead.getHorizontalSpring();
         Spring activeVerticalSpring = activeChatHead.getVerticalSpring();
-        if (activeChatHead.getState() == ChatHead.State.FREE) {
-            if (Math.abs(xVelocity) < ChatHeadUtils.dpToPx(manager.getDisplayMetrics(), 50)) {
-                if (activeHorizontalSpring.getCurrentValue() < (maxWidth
-                        - activeHorizontalSpring.getCurrentValue())) {
-                    xVelocity = -1;
-                } else {
-                    xVelocity = 1;
-                }
-            }
-            if (xVelocity < 0) {
-                int newVelocity = (int) (-activeHorizontalSpring.getCurrentValue()
-                        * SpringConfigsHolder.DRAGGING.friction);
-                if (xVelocity > newVelocity) xVelocity = (newVelocity);
-            } else if (xVelocity > 0) {
-                int newVelocity = (int) ((maxWidth
-                        - activeHorizontalSpring.getCurrentValue()
-                        - manager.getConfig().getHeadWidth())
-                        * SpringConfigsHolder.DRAGGING.friction);
-                if (newVelocity > xVelocity) xVelocity = (newVelocity);
-            }
+        if (activeChatHead.getState() != ChatHead.State.FREE) {
+            // released on the close button. If both velocities are 0, onSpringUpdate is not
+            // called and the capture never completes, so we give a negligible velocity
+            if (Math.abs(xVelocity) <= 1) xVelocity = xVelocity < 0 ? -1 : 1;
+            if (yVelocity == 0) yVelocity = 1;
+            activeHorizontalSpring.setVelocity(xVelocity);
+            activeVerticalSpring.setVelocity(yVelocity);
+            return;
         }
-        if (Math.abs(xVelocity) <= 1) {
-            // this is a hack. If both velocities are 0, onSprintUpdate is not called and the
-            // chat head remains whereever it is
-            // so we give a a negligible velocity to artificially fire onSpringUpdate
-            if (xVelocity < 0) {
-                xVelocity = -1;
-            } else {
-                xVelocity = 1;
-            }
+        flingResolver.setBounds(0, 0, maxWidth - manager.getConfig().getHeadWidth(),
+                maxHeight - manager.getConfig().getHeadHeight());
+        flingResolver.setSnapToHorizontalEdges(true, MIN_VELOCITY_TO_PICK_EDGE);
+        if (activeChatHead == hero && !manager.getConfig().isCloseButtonHidden()) {
+            int[] coords = manager.getChatHeadCoordsForCloseButton(activeChatHead);
+            flingResolver.setCaptureZone(coords[0], coords[1], activeChatHead.CLOSE_ATTRACTION_THRESHOLD);
+        } else {
+            flingResolver.clearCaptureZone();
         }
+        flingResolver.resolve(activeHorizontalSpring.getCurrentValue(),
+                activeVerticalSpring.getCurrentValue(), xVelocity, yVelocity);
+
+        if (flingResolver.isCaptured()) {
+            activeChatHead.setState(ChatHead.State.CAPTURED);
+            activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.CAPTURING);
+            activeVerticalSpring.setSpringConfig(SpringConfigsHolder.CAPTURING);
+            activeHorizontalSpring.setVelocity(xVelocity);
+            activeVerticalSpring.setVelocity(yVelocity);
+            activeHorizontalSpring.setEndValue(flingResolver.getLandingX());
+            activeVerticalSpring.setEndValue(flingResolver.getLandingY());
+            return;
+        }
+        settle(activeHorizontalSpring, flingResolver.hasHitHorizontalBound(), xVelocity,
+                flingResolver.getGlideVelocityX(), flingResolver.getLandingX());
+        settle(activeVerticalSpring, flingResolver.hasHitVerticalBound(), yVelocity,
+                flingResolver.getGlideVelocityY(), flingResolver.getLandingY());
+    }
 
-        if (yVelocity == 0) yVelocity = 1;
-
-        activeHorizontalSpring.setVelocity(xVelocity);
-        activeVerticalSpring.setVelocity(yVelocity);
+    /**
+     * Glides the spring to its landing point, or lets it spring back onto it if it would have
+     * glided past a bound.
+     */
+    private static void settle(Spring spring, boolean hitBound, double releaseVelocity,
+            double glideVelocity, double landing) {
+        if (hitBound) {
+            spring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
+            spring.setVelocity(releaseVelocity);
+        } else {
+            spring.setSpringConfig(SpringConfigsHolder.DRAGGING);
+            spring.setVelocity(glideVelocity);
+        }
+        spring.setEndValue(landing);
     }
 
     private void deactivate() {
@@ -372,6 +581,14 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
         return bundle;
     }
 
+    /**
+     * @return the chat head at the front of the stack, which receives touches, or null if there
+     * are no chat heads
+     */
+    public ChatHead getHero() {
+        return hero;
+    }
+
     /**
      * @return the index of the selected chat head a.k.a the hero
      */
@@ -419,83 +636,26 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
     }
 
     @Override
-    public void onSpringUpdate(ChatHead activeChatHead, boolean isDragging, int maxWidth,
-            int maxHeight, Spring spring, Spring activeHorizontalSpring,
-            Spring activeVerticalSpring, int totalVelocity) {
-        /** This method does a bounds Check **/
-        double xVelocity = activeHorizontalSpring.getVelocity();
-        double yVelocity = activeVerticalSpring.getVelocity();
+    public void onChatHeadMoved(ChatHead activeChatHead, ChatHeadMotion motion) {
+        boolean isDragging = motion.isDragging();
+        int totalVelocity = motion.getTotalVelocity();
+        Spring activeHorizontalSpring = activeChatHead.getHorizontalSpring();
+        Spring activeVerticalSpring = activeChatHead.getVerticalSpring();
         if (!isDragging
-                && Math.abs(totalVelocity) < MIN_VELOCITY_TO_POSITION_BACK
-                && activeChatHead == hero) {
-
-            if (Math.abs(totalVelocity) < MAX_VELOCITY_FOR_IDLING
-                    && activeChatHead.getState() == ChatHead.State.FREE
-                    && hasActivated) {
-                setIdleStateX((int) activeHorizontalSpring.getCurrentValue());
-                setIdleStateY((int) activeVerticalSpring.getCurrentValue());
-            }
-            if (spring == activeHorizontalSpring) {
-
-                double xPosition = activeHorizontalSpring.getCurrentValue();
-                if (xPosition + manager.getConfig().getHeadWidth() > maxWidth
-                        && activeHorizontalSpring.getVelocity() > 0) {
-                    //outside the right bound
-                    //System.out.println("outside the right bound !! xPosition = " + xPosition);
-                    int newPos = maxWidth - manager.getConfig().getHeadWidth();
-                    activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                    activeHorizontalSpring.setEndValue(newPos);
-                } else if (xPosition < 0 && activeHorizontalSpring.getVelocity() < 0) {
-                    //outside the left bound
-                    //System.out.println("outside the left bound !! xPosition = " + xPosition);
-                    activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                    activeHorizontalSpring.setEndValue(0);
-                } else {
-                    //within bound
-
-                }
-            } else if (spring == activeVerticalSpring) {
-
-                double yPosition = activeVerticalSpring.getCurrentValue();
-                if (yPosition + manager.getConfig().getHeadWidth() > maxHeight
-                        && activeVerticalSpring.getVelocity() > 0) {
-                    //outside the bottom bound
-                    //System.out.println("outside the bottom bound !! yPosition = " + yPosition);
-
-                    activeVerticalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                    activeVerticalSpring.setEndValue(
-                            maxHeight - manager.getConfig().getHeadHeight());
-                } else if (yPosition < 0 && activeVerticalSpring.getVelocity() < 0) {
-                    //outside the top bound
-                    //System.out.println("outside the top bound !! yPosition = " + yPosition);
-
-                    activeVerticalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                    activeVerticalSpring.setEndValue(0);
-                } else {
-                    //within bound
-                }
-            }
+                && Math.abs(totalVelocity) < MAX_VELOCITY_FOR_IDLING
+                && activeChatHead == hero
+                && activeChatHead.getState() == ChatHead.State.FREE
+                && hasActivated) {
+            setIdleStateX((int) activeHorizontalSpring.getCurrentValue());
+            setIdleStateY((int) activeVerticalSpring.getCurrentValue());
         }
 
         if (!isDragging && activeChatHead == hero) {
 
             /** Capturing check **/
-            int[] coords = manager.getChatHeadCoordsForCloseButton(activeChatHead);
-            double distanceCloseButtonFromHead = manager.getDistanceCloseButtonFromHead(
-                    (float) activeHorizontalSpring.getCurrentValue()
-                            + manager.getConfig().getHeadWidth() / 2,
-                    (float) activeVerticalSpring.getCurrentValue()
-                            + manager.getConfig().getHeadHeight() / 2);
-
-            if (distanceCloseButtonFromHead < activeChatHead.CLOSE_ATTRACTION_THRESHOLD
-                    && activeHorizontalSpring.getSpringConfig() == SpringConfigsHolder.DRAGGING
-                    && activeVerticalSpring.getSpringConfig() == SpringConfigsHolder.DRAGGING) {
-                activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                activeVerticalSpring.setSpringConfig(SpringConfigsHolder.NOT_DRAGGING);
-                activeChatHead.setState(ChatHead.State.CAPTURED);
-            }
             if (activeChatHead.getState() == ChatHead.State.CAPTURED
                     && activeHorizontalSpring.getSpringConfig() != SpringConfigsHolder.CAPTURING) {
+                int[] coords = manager.getChatHeadCoordsForCloseButton(activeChatHead);
                 activeHorizontalSpring.setAtRest();
                 activeVerticalSpring.setAtRest();
                 activeHorizontalSpring.setSpringConfig(SpringConfigsHolder.CAPTURING);
@@ -518,8 +678,20 @@ public class MinimizedArrangement<T extends Serializable> extends ChatHeadArrang
 
     @Override
     public void bringToFront(ChatHead chatHead) {
-        Bundle b = getBundle(getHeroIndex(chatHead));
-        onActivate(manager, b, manager.getMaxWidth(), manager.getMaxHeight(), true);
+        if (chatHead == hero) return;
+        if (!followersActive || hero == null || !followers.contains(chatHead)) {
+            Bundle b = getBundle(getHeroIndex(chatHead));
+            onActivate(manager, b, manager.getMaxWidth(), manager.getMaxHeight(), true);
+            return;
+        }
+        // swap places: the old hero leads the stack and the chat head takes the hero's spot
+        ChatHead oldHero = hero;
+        followers.remove(chatHead);
+        followers.add(oldHero, oldHero.getHorizontalSpring().getCurrentValue(),
+                oldHero.getVerticalSpring().getCurrentValue());
+        setHero(chatHead);
+        moveHero(idleStateX, idleStateY);
+        FrameScheduler.getInstance().requestFrames(followerStep);
     }
 
     @Override
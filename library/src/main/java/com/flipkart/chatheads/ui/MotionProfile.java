@@ -0,0 +1,93 @@
+package com.flipkart.chatheads.ui;
+
+import com.facebook.rebound.SpringConfig;
+
+/**
+ * How much motion the chat heads spend: the configs of the springs which settle them, how often
+ * physics is stepped and which purely decorative animations run. Applied by
+ * {@link MotionProfileController}.
+ */
+public class MotionProfile {
+
+    /**
+     * The regular motion. Its spring values are those {@link SpringConfigsHolder} starts with.
+     */
+    public static final MotionProfile FULL = new MotionProfile("full",
+            copy(SpringConfigsHolder.NOT_DRAGGING), copy(SpringConfigsHolder.CAPTURING),
+            Integer.MAX_VALUE, true, true);
+
+    /**
+     * For battery saver and thermal pressure: critically damped springs which settle sooner,
+     * physics at 30 steps per second and no decorative animations.
+     */
+    public static final MotionProfile REDUCED = new MotionProfile("reduced",
+            SpringConfig.fromOrigamiTensionAndFriction(250, 21),
+            SpringConfig.fromOrigamiTensionAndFriction(140, 16),
+            30, false, false);
+
+    private final String name;
+    private final SpringConfig notDragging;
+    private final SpringConfig capturing;
+    private final int maxPhysicsRate;
+    private final boolean overlayAnimationEnabled;
+    private final boolean pressScaleEnabled;
+
+    /**
+     * @param maxPhysicsRate cap on physics steps per second, on top of
+     *                       {@link ChatHeadConfig#getMaxPhysicsRate()}
+     */
+    public MotionProfile(String name, SpringConfig notDragging, SpringConfig capturing,
+            int maxPhysicsRate, boolean overlayAnimationEnabled, boolean pressScaleEnabled) {
+        this.name = name;
+        this.notDragging = notDragging;
+        this.capturing = capturing;
+        this.maxPhysicsRate = maxPhysicsRate;
+        this.overlayAnimationEnabled = overlayAnimationEnabled;
+        this.pressScaleEnabled = pressScaleEnabled;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxPhysicsRate() {
+        return maxPhysicsRate;
+    }
+
+    /**
+     * @return false if the dashed path of the overlay is drawn without moving
+     */
+    public boolean isOverlayAnimationEnabled() {
+        return overlayAnimationEnabled;
+    }
+
+    /**
+     * @return false if chat heads do not shrink while pressed
+     */
+    public boolean isPressScaleEnabled() {
+        return pressScaleEnabled;
+    }
+
+    /**
+     * Copies the spring values into the shared configs of {@link SpringConfigsHolder}. The config
+     * instances stay the same, since arrangements tell spring states apart by them.
+     */
+    void applySpringConfigs() {
+        set(SpringConfigsHolder.NOT_DRAGGING, notDragging);
+        set(SpringConfigsHolder.CAPTURING, capturing);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static void set(SpringConfig target, SpringConfig values) {
+        target.tension = values.tension;
+        target.friction = values.friction;
+    }
+
+    private static SpringConfig copy(SpringConfig config) {
+        return new SpringConfig(config.tension, config.friction);
+    }
+}
@@ -0,0 +1,168 @@
+package com.flipkart.chatheads.ui;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import java.lang.reflect.Method;
+
+/**
+ * Picks the {@link MotionProfile} for the state of the device: {@link MotionProfile#REDUCED}
+ * while battery saver is on or the device reports thermal pressure, {@link MotionProfile#FULL}
+ * otherwise.
+ * <p>
+ * The state is sampled through {@link #refresh()} when motion is about to start, like on a touch
+ * or an arrangement change, rather than by registering receivers which would outlive the chat
+ * heads. Samples are at most {@link #REFRESH_INTERVAL} apart.
+ * <p>
+ * Also keeps an estimate of the frames the reduced profile saved, for debugging.
+ */
+public class MotionProfileController {
+
+    private static final long REFRESH_INTERVAL = 5000;
+    /**
+     * Android 10, where thermal status was added. Read by reflection, since the library does not
+     * compile against that SDK.
+     */
+    private static final int THERMAL_STATUS_API = 29;
+    /**
+     * PowerManager.THERMAL_STATUS_MODERATE, the first status at which the device throttles
+     */
+    private static final int THERMAL_STATUS_MODERATE = 2;
+    /**
+     * Frame rate assumed when turning time saved into frames
+     */
+    private static final int ESTIMATE_FRAME_RATE = 60;
+
+    private final PowerManager powerManager;
+    private Listener listener;
+    private MotionProfile activeProfile = MotionProfile.FULL;
+    private MotionProfile forcedProfile;
+    private long lastRefreshTime = -1;
+    private Method thermalStatusMethod;
+    private boolean thermalStatusUnavailable;
+    private int baselinePhysicsRate = FrameScheduler.DEFAULT_MAX_PHYSICS_RATE;
+    private long reducedPhysicsStartTime = -1;
+    private double savedFrames;
+
+    public interface Listener {
+        void onMotionProfileChanged(MotionProfile profile);
+    }
+
+    public MotionProfileController(Context context) {
+        powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public MotionProfile getActiveProfile() {
+        return activeProfile;
+    }
+
+    /**
+     * Uses the given profile whatever the state of the device, or goes back to picking one if
+     * null.
+     */
+    public void setForcedProfile(MotionProfile forcedProfile) {
+        this.forcedProfile = forcedProfile;
+        lastRefreshTime = -1;
+        refresh();
+    }
+
+    /**
+     * @param baselinePhysicsRate physics rate the full profile runs at, to estimate the steps the
+     *                            reduced one saves
+     */
+    public void setBaselinePhysicsRate(int baselinePhysicsRate) {
+        accumulatePhysicsSavings();
+        this.baselinePhysicsRate = baselinePhysicsRate;
+        accumulatePhysicsSavings();
+    }
+
+    /**
+     * Samples the state of the device and switches profiles if needed. Cheap to call often.
+     */
+    public void refresh() {
+        long now = SystemClock.uptimeMillis();
+        if (lastRefreshTime >= 0 && now - lastRefreshTime < REFRESH_INTERVAL) return;
+        lastRefreshTime = now;
+        MotionProfile profile = forcedProfile;
+        if (profile == null) {
+            profile = isPowerSaveMode() || isThermallyThrottled()
+                    ? MotionProfile.REDUCED : MotionProfile.FULL;
+        }
+        if (profile != activeProfile) {
+            apply(profile);
+        }
+    }
+
+    /**
+     * Counts work skipped because of the active profile, like animations which did not run.
+     */
+    public void addSavedTime(double seconds) {
+        savedFrames += seconds * ESTIMATE_FRAME_RATE;
+    }
+
+    /**
+     * @return estimated number of frames and physics steps not run because of reduced profiles
+     * since the last {@link #resetStats()}
+     */
+    public int getSavedFrameCount() {
+        accumulatePhysicsSavings();
+        return (int) savedFrames;
+    }
+
+    public void resetStats() {
+        accumulatePhysicsSavings();
+        savedFrames = 0;
+    }
+
+    private void apply(MotionProfile profile) {
+        accumulatePhysicsSavings();
+        activeProfile = profile;
+        // starts counting for the new profile
+        accumulatePhysicsSavings();
+        profile.applySpringConfigs();
+        if (listener != null) {
+            listener.onMotionProfileChanged(profile);
+        }
+    }
+
+    private void accumulatePhysicsSavings() {
+        long physicsTime = FrameScheduler.getInstance().getPhysicsTimeMillis();
+        if (reducedPhysicsStartTime >= 0) {
+            int skippedRate = baselinePhysicsRate - Math.min(baselinePhysicsRate, activeProfile.getMaxPhysicsRate());
+            savedFrames += (physicsTime - reducedPhysicsStartTime) / 1000.0 * skippedRate;
+        }
+        reducedPhysicsStartTime = activeProfile.getMaxPhysicsRate() < baselinePhysicsRate ? physicsTime : -1;
+    }
+
+    private boolean isPowerSaveMode() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && powerManager != null
+                && isPowerSaveModeLollipop();
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private boolean isPowerSaveModeLollipop() {
+        return powerManager.isPowerSaveMode();
+    }
+
+    private boolean isThermallyThrottled() {
+        if (Build.VERSION.SDK_INT < THERMAL_STATUS_API || powerManager == null || thermalStatusUnavailable) {
+            return false;
+        }
+        try {
+            if (thermalStatusMethod == null) {
+                thermalStatusMethod = PowerManager.class.getMethod("getCurrentThermalStatus");
+            }
+            return (Integer) thermalStatusMethod.invoke(powerManager) >= THERMAL_STATUS_MODERATE;
+        } catch (Exception e) {
+            thermalStatusUnavailable = true;
+            return false;
+        }
+    }
+}
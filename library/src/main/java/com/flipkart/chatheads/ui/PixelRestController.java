@@ -0,0 +1,104 @@
+package com.flipkart.chatheads.ui;
+
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.flipkart.chatheads.ui.physics.PixelRest;
+
+/**
+ * Brings the position springs of a chat head to rest as soon as what is left of their motion can
+ * no longer move it by a pixel, instead of waiting for the springs' own rest thresholds. This cuts
+ * the tail of every fling, where the springs only move by fractions of a pixel, together with the
+ * arrangement callbacks and window updates those frames would cause.
+ * <p>
+ * Both springs of a chat head are settled together, so it never rests on one axis while still
+ * moving on the other.
+ */
+public class PixelRestController {
+
+    private boolean enabled = true;
+    private int settleCount;
+    private int savedFrameCount;
+    private int lastSavedFrameCount;
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Settles the chat head at its resting pixel if neither of its position springs can still
+     * move it.
+     *
+     * @param frameMillis length of the current frame, to turn the time saved into frames
+     * @return true if the chat head was settled
+     */
+    public boolean settle(ChatHead chatHead, long frameMillis) {
+        if (!enabled || chatHead.isDragging() || chatHead.isInTransition()) return false;
+        Spring horizontalSpring = chatHead.getHorizontalSpring();
+        Spring verticalSpring = chatHead.getVerticalSpring();
+        if (horizontalSpring == null || verticalSpring == null) return false;
+        if (horizontalSpring.isAtRest() && verticalSpring.isAtRest()) return false;
+        if (!isSettled(horizontalSpring) || !isSettled(verticalSpring)) return false;
+
+        double remaining = Math.max(getRemainingTime(horizontalSpring), getRemainingTime(verticalSpring));
+        lastSavedFrameCount = (int) (remaining * 1000 / Math.max(1, frameMillis));
+        savedFrameCount += lastSavedFrameCount;
+        settleCount++;
+        // the spring system reports them at rest on its next step
+        horizontalSpring.setCurrentValue(getRestingPosition(horizontalSpring));
+        verticalSpring.setCurrentValue(getRestingPosition(verticalSpring));
+        return true;
+    }
+
+    /**
+     * @return number of times a chat head was settled early since the last {@link #resetStats()}
+     */
+    public int getSettleCount() {
+        return settleCount;
+    }
+
+    /**
+     * @return estimated number of frames the springs would have kept running for, summed over all
+     * settles since the last {@link #resetStats()}. Meant for debugging.
+     */
+    public int getSavedFrameCount() {
+        return savedFrameCount;
+    }
+
+    /**
+     * @return estimated number of frames saved by the latest settle, i.e. by the end of the last
+     * fling
+     */
+    public int getLastSavedFrameCount() {
+        return lastSavedFrameCount;
+    }
+
+    public void resetStats() {
+        settleCount = 0;
+        savedFrameCount = 0;
+        lastSavedFrameCount = 0;
+    }
+
+    private static boolean isSettled(Spring spring) {
+        SpringConfig config = spring.getSpringConfig();
+        return PixelRest.isSettled(spring.getCurrentValue(), spring.getVelocity(),
+                spring.getEndValue(), config.tension, config.friction);
+    }
+
+    private static double getRestingPosition(Spring spring) {
+        SpringConfig config = spring.getSpringConfig();
+        return PixelRest.getRestingPosition(spring.getCurrentValue(), spring.getVelocity(),
+                spring.getEndValue(), config.tension, config.friction);
+    }
+
+    private static double getRemainingTime(Spring spring) {
+        if (spring.isAtRest()) return 0;
+        SpringConfig config = spring.getSpringConfig();
+        return PixelRest.getRemainingTime(spring.getCurrentValue(), spring.getVelocity(),
+                spring.getEndValue(), config.tension, config.friction,
+                spring.getRestSpeedThreshold(), spring.getRestDisplacementThreshold());
+    }
+}
@@ -0,0 +1,208 @@
+package com.flipkart.chatheads.ui;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SimpleSpringListener;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringListener;
+import com.facebook.rebound.SpringSystemListener;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Draws the springs of a spring system from {@link FrameScheduler#createSpringSystem()} on every
+ * frame, although the system is only stepped on the physics clock. The value before and after each
+ * step is kept, and what is drawn is interpolated between them by
+ * {@link FrameScheduler#getPhysicsAlpha()}, so it never goes past where the spring actually went.
+ * A spring whose value was set outside a step, like one following a drag, is drawn where it was
+ * set.
+ * <p>
+ * Springs are added with a {@link Listener}, which is called in the
+ * {@link FrameScheduler#ORDER_LAYOUT} step of frames in which one of its springs was updated or is
+ * drawn somewhere else, once for all of them. Values are read with {@link #getValue(Spring)}.
+ */
+public class SpringInterpolator {
+
+    public interface Listener {
+        void onSpringsDrawn(SpringInterpolator interpolator);
+    }
+
+    private static class SpringState {
+        final Spring spring;
+        final Target target;
+        /**
+         * Value before the last step
+         */
+        double previous;
+        /**
+         * Value after the last step
+         */
+        double stepped;
+        double drawn;
+        /**
+         * Updated since it was last drawn, so drawn even if at the same value
+         */
+        boolean updated = true;
+
+        SpringState(Spring spring, Target target) {
+            this.spring = spring;
+            this.target = target;
+            previous = stepped = drawn = spring.getCurrentValue();
+        }
+    }
+
+    private static class Target {
+        final Listener listener;
+        int springCount;
+        boolean pending;
+
+        Target(Listener listener) {
+            this.listener = listener;
+        }
+    }
+
+    private final BaseSpringSystem springSystem;
+    private final IdentityHashMap<Spring, SpringState> states = new IdentityHashMap<>();
+    private final ArrayList<SpringState> stateList = new ArrayList<>();
+    private final IdentityHashMap<Listener, Target> targets = new IdentityHashMap<>();
+    private final ArrayList<Target> pendingTargets = new ArrayList<>();
+    private final SpringSystemListener stepListener = new SpringSystemListener() {
+        @Override
+        public void onBeforeIntegrate(BaseSpringSystem springSystem) {
+            for (int i = 0; i < stateList.size(); i++) {
+                SpringState state = stateList.get(i);
+                state.previous = state.spring.getCurrentValue();
+            }
+        }
+
+        @Override
+        public void onAfterIntegrate(BaseSpringSystem springSystem) {
+            // nothing to interpolate towards once the system stops
+            boolean idle = springSystem.getIsIdle();
+            for (int i = 0; i < stateList.size(); i++) {
+                SpringState state = stateList.get(i);
+                state.stepped = state.spring.getCurrentValue();
+                if (idle) {
+                    state.previous = state.stepped;
+                }
+            }
+        }
+    };
+    private final SpringListener updateListener = new SimpleSpringListener() {
+        @Override
+        public void onSpringUpdate(Spring spring) {
+            SpringState state = states.get(spring);
+            if (state != null) {
+                state.updated = true;
+            }
+            FrameScheduler.getInstance().requestFrames(drawStep);
+        }
+    };
+    private final FrameScheduler.FrameListener drawStep = new FrameScheduler.FrameListener() {
+        @Override
+        public boolean doFrame(long frameTimeMillis, long deltaMillis) {
+            draw();
+            // frames without a physics step move the springs too
+            return !springSystem.getIsIdle();
+        }
+    };
+
+    public SpringInterpolator(BaseSpringSystem springSystem) {
+        this.springSystem = springSystem;
+        springSystem.addListener(stepListener);
+        FrameScheduler.getInstance().addFrameListener(drawStep, FrameScheduler.ORDER_LAYOUT);
+    }
+
+    /**
+     * @param listener called when the spring was updated or is drawn somewhere else, or null if
+     *                 the value is only read with {@link #getValue(Spring)}
+     */
+    public void add(Spring spring, Listener listener) {
+        if (states.containsKey(spring)) return;
+        Target target = null;
+        if (listener != null) {
+            target = targets.get(listener);
+            if (target == null) {
+                target = new Target(listener);
+                targets.put(listener, target);
+            }
+            target.springCount++;
+        }
+        SpringState state = new SpringState(spring, target);
+        states.put(spring, state);
+        stateList.add(state);
+        spring.addListener(updateListener);
+    }
+
+    /**
+     * Stops tracking a spring, before it is destroyed.
+     */
+    public void remove(Spring spring) {
+        SpringState state = states.remove(spring);
+        if (state == null) return;
+        stateList.remove(state);
+        spring.removeListener(updateListener);
+        Target target = state.target;
+        if (target != null && --target.springCount == 0) {
+            targets.remove(target.listener);
+            pendingTargets.remove(target);
+        }
+    }
+
+    /**
+     * @return the value of the spring to draw in the current frame, its current value if it is
+     * not tracked
+     */
+    public double getValue(Spring spring) {
+        SpringState state = states.get(spring);
+        return state == null ? spring.getCurrentValue() : getValue(state);
+    }
+
+    private double getValue(SpringState state) {
+        double current = state.spring.getCurrentValue();
+        if (current != state.stepped) {
+            // set outside a step
+            return current;
+        }
+        double alpha = FrameScheduler.getInstance().getPhysicsAlpha();
+        return state.previous + (current - state.previous) * alpha;
+    }
+
+    /**
+     * Stops drawing and tracking every spring. The interpolator cannot be used afterwards.
+     */
+    public void release() {
+        for (int i = 0; i < stateList.size(); i++) {
+            stateList.get(i).spring.removeListener(updateListener);
+        }
+        states.clear();
+        stateList.clear();
+        targets.clear();
+        pendingTargets.clear();
+        springSystem.removeListener(stepListener);
+        FrameScheduler.getInstance().removeFrameListener(drawStep);
+    }
+
+    private void draw() {
+        for (int i = 0; i < stateList.size(); i++) {
+            SpringState state = stateList.get(i);
+            Target target = state.target;
+            if (target == null) continue;
+            double value = getValue(state);
+            if (value == state.drawn && !state.updated) continue;
+            state.drawn = value;
+            state.updated = false;
+            if (!target.pending) {
+                target.pending = true;
+                pendingTargets.add(target);
+            }
+        }
+        // index based, listeners may add or remove springs
+        for (int i = 0; i < pendingTargets.size(); i++) {
+            Target target = pendingTargets.get(i);
+            target.pending = false;
+            target.listener.onSpringsDrawn(this);
+        }
+        pendingTargets.clear();
+    }
+}
@@ -0,0 +1,58 @@
+package com.flipkart.chatheads.ui.container;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import com.flipkart.chatheads.ui.ChatHeadArrangement;
+import com.flipkart.chatheads.ui.FrameChatHeadContainer;
+import com.flipkart.chatheads.ui.HostFrameLayout;
+import com.flipkart.chatheads.ui.MaximizedArrangement;
+
+import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+
+/**
+ * Hosts the chat heads inside the decor view of an activity instead of a system overlay window.
+ * No window manager calls or overlay permission are needed while the activity is visible.
+ * Use {@link com.flipkart.chatheads.ui.ChatHeadManager#setChatHeadContainer(com.flipkart.chatheads.ui.ChatHeadContainer)}
+ * to move the chat heads here when the activity resumes and back to a {@link WindowManagerContainer}
+ * before it pauses. Keep one container per activity instance for that, so that neither container
+ * adds its views again, and destroy it with the activity.
+ */
+public class ActivityContainer extends FrameChatHeadContainer {
+
+    private final Activity activity;
+
+    public ActivityContainer(Activity activity) {
+        super(activity);
+        this.activity = activity;
+    }
+
+    public Activity getActivity() {
+        return activity;
+    }
+
+    @Override
+    public void addContainer(View container, boolean focusable) {
+        ViewGroup decorView = (ViewGroup) activity.getWindow().getDecorView();
+        decorView.addView(container, new FrameLayout.LayoutParams(MATCH_PARENT, MATCH_PARENT));
+    }
+
+    @Override
+    public void onArrangementChanged(ChatHeadArrangement oldArrangement,
+            ChatHeadArrangement newArrangement) {
+        HostFrameLayout frameLayout = getFrameLayout();
+        if (frameLayout != null && newArrangement instanceof MaximizedArrangement) {
+            // so that back presses reach the host
+            frameLayout.requestFocus();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        HostFrameLayout frameLayout = getFrameLayout();
+        if (frameLayout != null && frameLayout.getParent() instanceof ViewGroup) {
+            ((ViewGroup) frameLayout.getParent()).removeView(frameLayout);
+        }
+    }
+}
@@ -17,8 +17,9 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.WindowManager;
 import android.widget.ImageView;
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
 import com.facebook.rebound.SpringConfigRegistry;
-import com.facebook.rebound.SpringSystem;
 import com.flipkart.chatheads.R;
 import com.flipkart.chatheads.ui.ChatHead;
 import com.flipkart.chatheads.ui.ChatHeadArrangement;
@@ -28,14 +29,23 @@ import com.flipkart.chatheads.ui.ChatHeadContainer;
 import com.flipkart.chatheads.ui.ChatHeadDefaultConfig;
 import com.flipkart.chatheads.ui.ChatHeadListener;
 import com.flipkart.chatheads.ui.ChatHeadManager;
+import com.flipkart.chatheads.ui.ChatHeadMotion;
 import com.flipkart.chatheads.ui.ChatHeadOverlayView;
 import com.flipkart.chatheads.ui.ChatHeadViewAdapter;
+import com.flipkart.chatheads.ui.FrameScheduler;
+import com.flipkart.chatheads.ui.FrameWatchdog;
+import com.flipkart.chatheads.ui.HardwareLayerController;
 import com.flipkart.chatheads.ui.MaximizedArrangement;
 import com.flipkart.chatheads.ui.MinimizedArrangement;
+import com.flipkart.chatheads.ui.MotionProfile;
+import com.flipkart.chatheads.ui.MotionProfileController;
+import com.flipkart.chatheads.ui.PixelRestController;
 import com.flipkart.chatheads.ui.SpringConfigsHolder;
+import com.flipkart.chatheads.ui.SpringInterpolator;
 import com.flipkart.chatheads.ui.UpArrowLayout;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -49,7 +59,7 @@ public class DefaultChatHeadManager<T extends Serializable> implements
     private static final int OVERLAY_TRANSITION_DURATION = 200;
     private final Map<Class<? extends ChatHeadArrangement>, ChatHeadArrangement> arrangements = new HashMap<>(3);
     private final Context context;
-    private final ChatHeadContainer chatHeadContainer;
+    private ChatHeadContainer chatHeadContainer;
     private List<ChatHead<T>> chatHeads;
     private int maxWidth;
     private int maxHeight;
@@ -60,7 +70,8 @@ public class DefaultChatHeadManager<T extends Serializable> implements
     private OnItemSelectedListener<T> itemSelectedListener;
     private boolean overlayVisible;
     private ImageView closeButtonShadow;
-    private SpringSystem springSystem;
+    private BaseSpringSystem springSystem;
+    private SpringInterpolator springInterpolator;
     private FragmentManager fragmentManager;
     private Fragment currentFragment;
     private ChatHeadConfig config;
@@ -69,6 +80,33 @@ public class DefaultChatHeadManager<T extends Serializable> implements
     private ArrangementChangeRequest requestedArrangement;
     private DisplayMetrics displayMetrics;
     private UpArrowLayout arrowLayout;
+    private final FrameScheduler.FrameListener positionFlush = new FrameScheduler.FrameListener() {
+        @Override
+        public boolean doFrame(long frameTimeMillis, long deltaMillis) {
+            // the spring interpolator asks for it in frames without a physics step
+            flushChatHeadPositions();
+            return false;
+        }
+    };
+    private final ChatHeadMotion chatHeadMotion = new ChatHeadMotion();
+    private final FrameScheduler.FrameListener arrangementUpdate = new FrameScheduler.FrameListener() {
+        @Override
+        public boolean doFrame(long frameTimeMillis, long deltaMillis) {
+            for (int i = 0; i < chatHeads.size(); i++) {
+                ChatHead<T> chatHead = chatHeads.get(i);
+                pixelRestController.settle(chatHead, deltaMillis);
+                chatHead.dispatchMotion(chatHeadMotion);
+            }
+            return false;
+        }
+    };
+    private final HardwareLayerController hardwareLayerController = new HardwareLayerController();
+    private final PixelRestController pixelRestController = new PixelRestController();
+    private MotionProfileController motionProfileController;
+    private final FrameWatchdog frameWatchdog = new FrameWatchdog();
+    private View[] pendingViews = new View[0];
+    private int[] pendingXPositions = new int[0];
+    private int[] pendingYPositions = new int[0];
 
     public DefaultChatHeadManager(Context context, ChatHeadContainer chatHeadContainer) {
         this.context = context;
@@ -81,6 +119,79 @@ public class DefaultChatHeadManager<T extends Serializable> implements
         return chatHeadContainer;
     }
 
+    @Override
+    public void setChatHeadContainer(ChatHeadContainer newContainer) {
+        ChatHeadContainer oldContainer = chatHeadContainer;
+        if (newContainer == oldContainer) return;
+
+        // back to front, heroes last so that they stay on top of the stack
+        List<View> views = new ArrayList<>(chatHeads.size() + 4);
+        views.add(overlayView);
+        views.add(arrowLayout);
+        views.add(closeButton);
+        for (ChatHead<T> chatHead : chatHeads) {
+            if (!chatHead.isHero()) views.add(chatHead);
+        }
+        for (ChatHead<T> chatHead : chatHeads) {
+            if (chatHead.isHero()) views.add(chatHead);
+        }
+        views.add(closeButtonShadow);
+
+        int[] xPositions = new int[views.size()];
+        int[] yPositions = new int[views.size()];
+        for (int i = 0; i < views.size(); i++) {
+            View view = views.get(i);
+            xPositions[i] = oldContainer.getViewX(view);
+            yPositions[i] = oldContainer.getViewY(view);
+            oldContainer.removeView(view);
+        }
+        oldContainer.onDetached();
+
+        chatHeadContainer = newContainer;
+        displayMetrics = newContainer.getDisplayMetrics();
+        newContainer.onInitialized(this);
+        for (int i = 0; i < views.size(); i++) {
+            View view = views.get(i);
+            newContainer.addView(view, view.getLayoutParams());
+        }
+        if (activeArrangement != null) {
+            newContainer.onArrangementChanged(null, activeArrangement);
+        }
+        for (int i = 0; i < views.size(); i++) {
+            View view = views.get(i);
+            if (view instanceof ChatHead || view == closeButton) {
+                newContainer.setViewPosition(view, xPositions[i], yPositions[i]);
+            }
+        }
+        newContainer.requestLayout();
+    }
+
+    @Override
+    public void destroy() {
+        if (activeArrangement != null) {
+            activeArrangement.onDeactivate(maxWidth, maxHeight);
+            activeArrangement = null;
+        }
+        for (ChatHeadArrangement arrangement : arrangements.values()) {
+            arrangement.onDestroy();
+        }
+        for (int i = 0; i < chatHeads.size(); i++) {
+            ChatHead<T> chatHead = chatHeads.get(i);
+            // springs, layers and the drag frame listener. The views go with the container.
+            chatHead.onRemove();
+        }
+        chatHeads.clear();
+        closeButton.destroy();
+        FrameScheduler scheduler = FrameScheduler.getInstance();
+        scheduler.removeFrameListener(arrangementUpdate);
+        scheduler.removeFrameListener(positionFlush);
+        springInterpolator.release();
+        scheduler.releaseSpringSystem(springSystem);
+        scheduler.removeFrameStatsListener(frameWatchdog);
+        scheduler.removeMaxPhysicsRate(this);
+        chatHeadContainer.destroy();
+    }
+
     @Override
     public DisplayMetrics getDisplayMetrics() {
         return displayMetrics;
@@ -218,7 +329,7 @@ public class DefaultChatHeadManager<T extends Serializable> implements
             if (listener != null) {
                 listener.onChatHeadAdded(key);
             }
-            closeButtonShadow.bringToFront();
+            chatHeadContainer.bringToFront(closeButtonShadow);
         } else  {
             chatHead.setUnreadCount(chatHead.getUnreadCount() + 1);
         }
@@ -281,18 +392,34 @@ public class DefaultChatHeadManager<T extends Serializable> implements
     }
 
     private void init(Context context, ChatHeadConfig chatHeadDefaultConfig) {
+        motionProfileController = new MotionProfileController(context);
+        motionProfileController.setListener(new MotionProfileController.Listener() {
+            @Override
+            public void onMotionProfileChanged(MotionProfile profile) {
+                applyPhysicsRate();
+                overlayView.updatePathAnimation();
+            }
+        });
+        frameWatchdog.setListener(new FrameWatchdog.Listener() {
+            @Override
+            public void onQualityLevelChanged(int qualityLevel) {
+                applyQualityLevel();
+            }
+        });
+        FrameScheduler.getInstance().addFrameStatsListener(frameWatchdog);
         chatHeadContainer.onInitialized(this);
-        DisplayMetrics metrics = new DisplayMetrics();
-        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
-        windowManager.getDefaultDisplay().getMetrics(metrics);
-        this.displayMetrics = metrics;
+        this.displayMetrics = chatHeadContainer.getDisplayMetrics();
         this.config = chatHeadDefaultConfig; //TODO : needs cleanup
         chatHeads = new ArrayList<>(5);
         arrowLayout = new UpArrowLayout(context);
         arrowLayout.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
         chatHeadContainer.addView(arrowLayout, arrowLayout.getLayoutParams());
         arrowLayout.setVisibility(View.GONE);
-        springSystem = SpringSystem.create();
+        springSystem = FrameScheduler.getInstance().createSpringSystem();
+        // ahead of the position flush in the layout step, so that it can request it
+        springInterpolator = new SpringInterpolator(springSystem);
+        FrameScheduler.getInstance().addFrameListener(arrangementUpdate, FrameScheduler.ORDER_ARRANGEMENT);
+        FrameScheduler.getInstance().addFrameListener(positionFlush, FrameScheduler.ORDER_LAYOUT);
         closeButton = new ChatHeadCloseButton(context, this, maxHeight, maxWidth);
         ViewGroup.LayoutParams layoutParams = chatHeadContainer.createLayoutParams(chatHeadDefaultConfig.getCloseButtonHeight(), chatHeadDefaultConfig.getCloseButtonWidth(), Gravity.TOP | Gravity.START, 0);
         closeButton.setListener(this);
@@ -312,11 +439,53 @@ public class DefaultChatHeadManager<T extends Serializable> implements
 
     private void setupOverlay(Context context) {
         overlayView = new ChatHeadOverlayView(context);
+        overlayView.setMotionProfileController(motionProfileController);
         overlayView.setBackgroundResource(R.drawable.overlay_transition);
         ViewGroup.LayoutParams layoutParams = getChatHeadContainer().createLayoutParams(WindowManager.LayoutParams.MATCH_PARENT, WindowManager.LayoutParams.MATCH_PARENT, Gravity.NO_GRAVITY, 0);
         getChatHeadContainer().addView(overlayView, layoutParams);
     }
 
+    @Override
+    public void requestPositionFlush() {
+        FrameScheduler.getInstance().requestFrames(arrangementUpdate);
+        FrameScheduler.getInstance().requestFrames(positionFlush);
+    }
+
+    /**
+     * Applies the spring positions of every chat head that moved in this frame with a single
+     * container call, interpolated between physics steps by the {@link SpringInterpolator}.
+     */
+    private void flushChatHeadPositions() {
+        int size = chatHeads.size();
+        if (pendingViews.length < size) {
+            pendingViews = new View[size];
+            pendingXPositions = new int[size];
+            pendingYPositions = new int[size];
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            ChatHead<T> chatHead = chatHeads.get(i);
+            Spring horizontalSpring = chatHead.getHorizontalSpring();
+            Spring verticalSpring = chatHead.getVerticalSpring();
+            if (horizontalSpring == null || verticalSpring == null) continue;
+            if (chatHead.hasPendingPosition()) {
+                chatHead.clearPendingPosition();
+                double x = springInterpolator.getValue(horizontalSpring);
+                double y = springInterpolator.getValue(verticalSpring);
+                pendingViews[count] = chatHead;
+                // rounded like PixelRestController expects
+                pendingXPositions[count] = (int) Math.round(x);
+                pendingYPositions[count] = (int) Math.round(y);
+                count++;
+            }
+        }
+        if (count > 0) {
+            chatHeadContainer.setViewPositions(pendingViews, pendingXPositions, pendingYPositions,
+                    count);
+            Arrays.fill(pendingViews, 0, count, null);
+        }
+    }
+
     public double getDistanceCloseButtonFromHead(float touchX, float touchY) {
         if (closeButton.isDisappeared()) {
             return Double.MAX_VALUE;
@@ -335,6 +504,50 @@ public class DefaultChatHeadManager<T extends Serializable> implements
         return arrowLayout;
     }
 
+    @Override
+    public HardwareLayerController getHardwareLayerController() {
+        return hardwareLayerController;
+    }
+
+    @Override
+    public PixelRestController getPixelRestController() {
+        return pixelRestController;
+    }
+
+    @Override
+    public MotionProfileController getMotionProfileController() {
+        return motionProfileController;
+    }
+
+    @Override
+    public FrameWatchdog getFrameWatchdog() {
+        return frameWatchdog;
+    }
+
+    @Override
+    public SpringInterpolator getSpringInterpolator() {
+        return springInterpolator;
+    }
+
+    /**
+     * Drops or brings back the decorations the watchdog allows at its current quality level. The
+     * press scale is checked by the chat heads themselves on touch.
+     */
+    private void applyQualityLevel() {
+        overlayView.setPathEnabled(frameWatchdog.isOverlayPathEnabled());
+        if (!frameWatchdog.isCloseButtonShadowEnabled()) {
+            // shown again the next time the close button appears
+            closeButtonShadow.setVisibility(View.GONE);
+        }
+        MinimizedArrangement minimizedArrangement = (MinimizedArrangement) arrangements.get(MinimizedArrangement.class);
+        minimizedArrangement.setMaxFollowerDepth(frameWatchdog.getMaxFollowerDepth());
+    }
+
+    private void applyPhysicsRate() {
+        FrameScheduler.getInstance().requestMaxPhysicsRate(this, Math.min(config.getMaxPhysicsRate(),
+                motionProfileController.getActiveProfile().getMaxPhysicsRate()));
+    }
+
     @Override
     public void captureChatHeads(ChatHead causingChatHead) {
         activeArrangement.onCapture(this, causingChatHead);
@@ -363,6 +576,7 @@ public class DefaultChatHeadManager<T extends Serializable> implements
      * @param requestedArrangementParam
      */
     private void setArrangementImpl(ArrangementChangeRequest requestedArrangementParam) {
+        motionProfileController.refresh();
         boolean hasChanged = false;
         ChatHeadArrangement requestedArrangement = arrangements.get(requestedArrangementParam.getArrangement());
         ChatHeadArrangement oldArrangement = null;
@@ -452,14 +666,16 @@ public class DefaultChatHeadManager<T extends Serializable> implements
 
     @Override
     public void onCloseButtonAppear() {
-        if (!getConfig().isCloseButtonHidden()) {
+        if (!getConfig().isCloseButtonHidden() && frameWatchdog.isCloseButtonShadowEnabled()) {
             closeButtonShadow.setVisibility(View.VISIBLE);
         }
+        chatHeadContainer.onCloseButtonAppear();
     }
 
     @Override
     public void onCloseButtonDisappear() {
         closeButtonShadow.setVisibility(View.GONE);
+        chatHeadContainer.onCloseButtonDisappear();
     }
 
 
@@ -474,7 +690,7 @@ public class DefaultChatHeadManager<T extends Serializable> implements
     }
 
     @Override
-    public SpringSystem getSpringSystem() {
+    public BaseSpringSystem getSpringSystem() {
         return springSystem;
     }
 
@@ -506,6 +722,8 @@ public class DefaultChatHeadManager<T extends Serializable> implements
     @Override
     public void setConfig(ChatHeadConfig config) {
         this.config = config;
+        motionProfileController.setBaselinePhysicsRate(config.getMaxPhysicsRate());
+        applyPhysicsRate();
         if (closeButton != null) {
             //            LayoutParams params = (LayoutParams) closeButton.getLayoutParams();
             //            params.width = config.getCloseButtonWidth();
@@ -517,7 +735,9 @@ public class DefaultChatHeadManager<T extends Serializable> implements
                 closeButtonShadow.setVisibility(View.GONE);
             } else {
                 closeButton.setVisibility(View.VISIBLE);
-                closeButtonShadow.setVisibility(View.VISIBLE);
+                if (frameWatchdog.isCloseButtonShadowEnabled()) {
+                    closeButtonShadow.setVisibility(View.VISIBLE);
+                }
             }
         }
         for (Map.Entry<Class<? extends ChatHeadArrangement>, ChatHeadArrangement> arrangementEntry : arrangements.entrySet()) {
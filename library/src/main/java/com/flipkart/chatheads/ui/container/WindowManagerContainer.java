@@ -4,20 +4,30 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.res.Configuration;
 import android.graphics.PixelFormat;
+import android.graphics.Rect;
 import android.os.Build;
+import android.os.SystemClock;
 import android.view.Gravity;
+import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.WindowManager;
+import android.widget.FrameLayout;
 import com.flipkart.chatheads.ui.ChatHead;
 import com.flipkart.chatheads.ui.ChatHeadArrangement;
+import com.flipkart.chatheads.ui.ChatHeadCloseButton;
 import com.flipkart.chatheads.ui.ChatHeadManager;
+import com.flipkart.chatheads.ui.ChatHeadOverlayView;
 import com.flipkart.chatheads.ui.FrameChatHeadContainer;
 import com.flipkart.chatheads.ui.HostFrameLayout;
 import com.flipkart.chatheads.ui.MaximizedArrangement;
 import com.flipkart.chatheads.ui.MinimizedArrangement;
+import com.flipkart.chatheads.ui.UpArrowLayout;
+import java.util.List;
 
 import static android.content.Context.WINDOW_SERVICE;
 import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
@@ -46,6 +56,37 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
     private WindowManager windowManager;
     private ChatHeadArrangement currentArrangement;
     private boolean motionCaptureViewAdded;
+    private WindowUpdateBatcher windowUpdateBatcher;
+    private boolean dynamicBoundsEnabled;
+    private boolean frameCompact;
+    private boolean closeButtonVisible;
+    /**
+     * Screen position of the host window the children are positioned against
+     */
+    private int frameOffsetX;
+    private int frameOffsetY;
+    /**
+     * Screen position the host window was last moved to, which it may not have reached yet
+     */
+    private int pendingFrameOffsetX;
+    private int pendingFrameOffsetY;
+    private boolean frameMovePending;
+    private int fullFrameWidth;
+    private int fullFrameHeight;
+    private final Rect frameBounds = new Rect();
+    private final Rect headBounds = new Rect();
+    private final Rect shrinkBounds = new Rect();
+    private final Rect predictedBounds = new Rect();
+    private final Rect touchBounds = new Rect();
+    private boolean prewarmEnabled;
+    private PanelFrameLayout panelLayout;
+    private long lastTapUptime;
+    private long lastMaximizeLatency = -1;
+    private MaximizeLatencyListener maximizeLatencyListener;
+    private boolean captureSyncOnSettle;
+    private boolean captureGestureActive;
+    private final Rect captureBounds = new Rect();
+    private boolean detached;
 
     private static final int OVERLAY_TYPE;
 
@@ -53,7 +94,7 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
         @Override
         public void onReceive(Context context, Intent intent) {
             HostFrameLayout frameLayout = getFrameLayout();
-            if (frameLayout != null) {
+            if (frameLayout != null && !detached) {
                 frameLayout.minimize();
             }
         }
@@ -61,6 +102,26 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
 
     private IntentFilter mIntentFilter = new IntentFilter(Intent.ACTION_CLOSE_SYSTEM_DIALOGS);
 
+    /**
+     * Applies a move of the host window to its children just before the first frame drawn at the
+     * new window position
+     */
+    private final ViewTreeObserver.OnPreDrawListener frameMoveListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            HostFrameLayout frameLayout = getFrameLayout();
+            if (frameLayout != null && getWindowUpdateBatcher().isDirty(frameLayout)) {
+                // not sent to the window manager yet, this frame is still drawn at the old position
+                return true;
+            }
+            if (frameLayout != null) {
+                frameLayout.getViewTreeObserver().removeOnPreDrawListener(this);
+            }
+            applyFrameMove();
+            return true;
+        }
+    };
+
     static {
         if (Build.VERSION.SDK_INT >= 26) {
             OVERLAY_TYPE = WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY;
@@ -76,6 +137,20 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
 
     @Override
     public void onInitialized(ChatHeadManager manager) {
+        if (getFrameLayout() != null) {
+            // moved back to after onDetached, the windows were kept. The arrangement that
+            // follows sets the visibility of the panel.
+            super.onInitialized(manager);
+            motionCaptureView.setVisibility(View.VISIBLE);
+            detached = false;
+            return;
+        }
+        if (prewarmEnabled) {
+            // added before the host window so that the chat heads are drawn above it
+            panelLayout = new PanelFrameLayout(getContext());
+            panelLayout.setVisibility(View.INVISIBLE);
+            addContainer(panelLayout, true);
+        }
         super.onInitialized(manager);
         motionCaptureView = new MotionCaptureView(getContext());
 
@@ -84,6 +159,23 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
         registerReceiver(getContext());
     }
 
+    /**
+     * Hides the windows of this container and ignores system dialog broadcasts until it is
+     * initialized again. The windows and the receiver are kept, so moving back costs no window
+     * manager calls.
+     */
+    @Override
+    public void onDetached() {
+        super.onDetached();
+        detached = true;
+        if (motionCaptureView != null) {
+            motionCaptureView.setVisibility(View.GONE);
+        }
+        if (panelLayout != null) {
+            panelLayout.setVisibility(View.INVISIBLE);
+        }
+    }
+
     public void registerReceiver(Context context) {
         context.registerReceiver(mBroadcastReceiver, mIntentFilter);
     }
@@ -99,19 +191,84 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
         return windowManager;
     }
 
+    /**
+     * When enabled, the host window shrinks to the bounding box of the chat heads while they are
+     * minimized, so that a full screen translucent window is not composited over other apps all
+     * the time. It grows back to full screen when maximized or while the close button is shown.
+     */
+    public void setDynamicBoundsEnabled(boolean dynamicBoundsEnabled) {
+        this.dynamicBoundsEnabled = dynamicBoundsEnabled;
+        if (!dynamicBoundsEnabled) {
+            expandFrame();
+        }
+    }
+
+    public boolean isDynamicBoundsEnabled() {
+        return dynamicBoundsEnabled;
+    }
+
+    /**
+     * When enabled, the content panel and overlay live in their own focusable window which is
+     * created and laid out up front and kept invisible while minimized. Maximizing then only
+     * swaps which windows are visible instead of changing flags and bounds of the existing
+     * windows. Must be called before this container is given to a manager.
+     */
+    public void setPrewarmEnabled(boolean prewarmEnabled) {
+        this.prewarmEnabled = prewarmEnabled;
+    }
+
+    public boolean isPrewarmEnabled() {
+        return prewarmEnabled;
+    }
+
+    public void setMaximizeLatencyListener(MaximizeLatencyListener maximizeLatencyListener) {
+        this.maximizeLatencyListener = maximizeLatencyListener;
+    }
+
+    /**
+     * @return time in milliseconds from the last tap on a minimized chat head to the first frame
+     * drawn with the maximized content, or -1 if not measured yet
+     */
+    public long getLastMaximizeLatency() {
+        return lastMaximizeLatency;
+    }
+
+    /**
+     * When enabled, the motion capture window no longer follows the hero on every frame while
+     * minimized. It is placed exactly on the hero once its springs come to rest. While the hero
+     * moves on its own, the window covers the hero enlarged by a quarter of its size and is only
+     * moved again if the hero leaves that area. It is never moved during a gesture. Gestures
+     * which start on the window but not on the hero go through the host layout instead of to
+     * the hero.
+     */
+    public void setCaptureSyncOnSettleEnabled(boolean captureSyncOnSettle) {
+        this.captureSyncOnSettle = captureSyncOnSettle;
+    }
+
+    public boolean isCaptureSyncOnSettleEnabled() {
+        return captureSyncOnSettle;
+    }
+
+    public WindowUpdateBatcher getWindowUpdateBatcher() {
+        if (windowUpdateBatcher == null) {
+            windowUpdateBatcher = new WindowUpdateBatcher(getWindowManager());
+        }
+        return windowUpdateBatcher;
+    }
+
     protected void setContainerHeight(View container, int height) {
-        if (motionCaptureView.getWindowToken() != null) {
-            WindowManager.LayoutParams layoutParams = getOrCreateLayoutParamsForContainer(container);
+        WindowManager.LayoutParams layoutParams = getOrCreateLayoutParamsForContainer(container);
+        if (layoutParams.height != height) {
             layoutParams.height = height;
-            getWindowManager().updateViewLayout(container, layoutParams);
+            getWindowUpdateBatcher().markDirty(container);
         }
     }
 
     protected void setContainerWidth(View container, int width) {
-        if (motionCaptureView.getWindowToken() != null) {
-            WindowManager.LayoutParams layoutParams = getOrCreateLayoutParamsForContainer(container);
+        WindowManager.LayoutParams layoutParams = getOrCreateLayoutParamsForContainer(container);
+        if (layoutParams.width != width) {
             layoutParams.width = width;
-            getWindowManager().updateViewLayout(container, layoutParams);
+            getWindowUpdateBatcher().markDirty(container);
         }
     }
 
@@ -126,10 +283,10 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
     }
 
     protected void setContainerX(View container, int xPosition) {
-        if (motionCaptureView.getWindowToken() != null) {
-            WindowManager.LayoutParams layoutParams = getOrCreateLayoutParamsForContainer(container);
+        WindowManager.LayoutParams layoutParams = getOrCreateLayoutParamsForContainer(container);
+        if (layoutParams.x != xPosition) {
             layoutParams.x = xPosition;
-            getWindowManager().updateViewLayout(container, layoutParams);
+            getWindowUpdateBatcher().markDirty(container);
         }
     }
 
@@ -139,10 +296,10 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
     }
 
     protected void setContainerY(View container, int yPosition) {
-        if (motionCaptureView.getWindowToken() != null) {
-            WindowManager.LayoutParams layoutParams = getOrCreateLayoutParamsForContainer(container);
+        WindowManager.LayoutParams layoutParams = getOrCreateLayoutParamsForContainer(container);
+        if (layoutParams.y != yPosition) {
             layoutParams.y = yPosition;
-            getWindowManager().updateViewLayout(container, layoutParams);
+            getWindowUpdateBatcher().markDirty(container);
         }
     }
 
@@ -151,6 +308,14 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
         return layoutParams.y;
     }
 
+    protected void setContainerFlags(View container, int flags) {
+        WindowManager.LayoutParams layoutParams = getOrCreateLayoutParamsForContainer(container);
+        if (layoutParams.flags != flags) {
+            layoutParams.flags = flags;
+            getWindowUpdateBatcher().markDirty(container);
+        }
+    }
+
     protected WindowManager.LayoutParams createContainerLayoutParams(boolean focusable) {
         int focusableFlag;
         if (focusable) {
@@ -180,88 +345,342 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
 
     @Override
     public void setViewX(View view, int xPosition) {
-        super.setViewX(view, xPosition);
+        setViewPosition(view, xPosition, getViewY(view));
+    }
+
+    @Override
+    public void setViewY(View view, int yPosition) {
+        setViewPosition(view, getViewX(view), yPosition);
+    }
+
+    @Override
+    public void setViewPosition(View view, int xPosition, int yPosition) {
+        super.setViewPosition(view, xPosition - frameOffsetX, yPosition - frameOffsetY);
         if (view instanceof ChatHead) {
             boolean hero = ((ChatHead) view).isHero();
             if (hero && currentArrangement instanceof MinimizedArrangement) {
-                setContainerX(motionCaptureView, xPosition);
-                setContainerWidth(motionCaptureView, view.getMeasuredWidth());
+                if (captureSyncOnSettle) {
+                    syncCaptureWindow((ChatHead) view);
+                } else {
+                    setContainerX(motionCaptureView, xPosition);
+                    setContainerY(motionCaptureView, yPosition);
+                    setContainerWidth(motionCaptureView, view.getMeasuredWidth());
+                    setContainerHeight(motionCaptureView, view.getMeasuredHeight());
+                }
             }
+            onChatHeadMoved((ChatHead) view);
         }
     }
 
     @Override
-    public void setViewY(View view, int yPosition) {
-        super.setViewY(view, yPosition);
-        if (view instanceof ChatHead && currentArrangement instanceof MinimizedArrangement) {
-            boolean hero = ((ChatHead) view).isHero();
-            if (hero) {
-                setContainerY(motionCaptureView, yPosition);
-                setContainerHeight(motionCaptureView, view.getMeasuredHeight());
+    public int getViewX(View view) {
+        return super.getViewX(view) + frameOffsetX;
+    }
+
+    @Override
+    public int getViewY(View view) {
+        return super.getViewY(view) + frameOffsetY;
+    }
+
+    private boolean canCompactFrame() {
+        return dynamicBoundsEnabled
+                && currentArrangement instanceof MinimizedArrangement
+                && !closeButtonVisible
+                && getFrameLayout() != null
+                && getManager().getMaxWidth() > 0
+                && getManager().getMaxHeight() > 0;
+    }
+
+    private void onChatHeadMoved(ChatHead chatHead) {
+        if (!canCompactFrame()) {
+            expandFrame();
+            return;
+        }
+        boolean heroAtRest = chatHead.isHero() && chatHead.isAtRest();
+        if (heroAtRest) {
+            shrinkFrame();
+        } else if (frameCompact) {
+            getChatHeadBounds(chatHead, headBounds);
+            if (!frameBounds.contains(headBounds)) {
+                // grow with some slack so that a moving head does not resize the window every frame
+                int slack = getManager().getConfig().getHeadWidth();
+                headBounds.inset(-slack, -slack);
+                headBounds.union(frameBounds);
+                setFrameBounds(headBounds);
+            }
+        }
+    }
+
+    private void syncCaptureWindow(ChatHead hero) {
+        if (captureGestureActive) return;
+        getChatHeadBounds(hero, headBounds);
+        if (hero.isAtRest()) {
+            setCaptureBounds(headBounds);
+            return;
+        }
+        if (captureBounds.contains(headBounds)) return;
+        // a little ahead of the hero, but never over much of the screen, as touches there do not
+        // reach the windows behind
+        int slackX = headBounds.width() / 4;
+        int slackY = headBounds.height() / 4;
+        predictedBounds.set(headBounds);
+        predictedBounds.inset(-slackX, -slackY);
+        setCaptureBounds(predictedBounds);
+    }
+
+    private void setCaptureBounds(Rect bounds) {
+        captureBounds.set(bounds);
+        setContainerX(motionCaptureView, bounds.left);
+        setContainerY(motionCaptureView, bounds.top);
+        setContainerWidth(motionCaptureView, bounds.width());
+        setContainerHeight(motionCaptureView, bounds.height());
+    }
+
+    private void getChatHeadBounds(ChatHead chatHead, Rect outRect) {
+        int width = chatHead.getMeasuredWidth();
+        int height = chatHead.getMeasuredHeight();
+        if (width == 0 || height == 0) {
+            width = getManager().getConfig().getHeadWidth();
+            height = getManager().getConfig().getHeadHeight();
+        }
+        int x = getViewX(chatHead);
+        int y = getViewY(chatHead);
+        outRect.set(x, y, x + width, y + height);
+    }
+
+    private void shrinkFrame() {
+        List<ChatHead> chatHeads = getManager().getChatHeads();
+        if (chatHeads.isEmpty()) return;
+        Rect bounds = shrinkBounds;
+        bounds.setEmpty();
+        for (int i = 0; i < chatHeads.size(); i++) {
+            getChatHeadBounds(chatHeads.get(i), headBounds);
+            bounds.union(headBounds);
+        }
+        int padding = getManager().getConfig().getHeadWidth() / 4;
+        bounds.inset(-padding, -padding);
+        setFrameBounds(bounds);
+    }
+
+    private void setFrameBounds(Rect bounds) {
+        HostFrameLayout frameLayout = getFrameLayout();
+        if (!frameCompact) {
+            fullFrameWidth = getManager().getMaxWidth();
+            fullFrameHeight = getManager().getMaxHeight();
+            frameLayout.setReportedSize(fullFrameWidth, fullFrameHeight);
+            frameCompact = true;
+        }
+        if (!bounds.intersect(0, 0, fullFrameWidth, fullFrameHeight)) return;
+        if (bounds.equals(frameBounds)) return;
+        frameBounds.set(bounds);
+        moveFrame(bounds.left, bounds.top, bounds.width(), bounds.height());
+    }
+
+    private void expandFrame() {
+        if (!frameCompact) return;
+        frameCompact = false;
+        frameBounds.setEmpty();
+        getFrameLayout().setReportedSize(0, 0);
+        moveFrame(0, 0, MATCH_PARENT, MATCH_PARENT);
+    }
+
+    /**
+     * Moves and resizes the host window. The window manager applies the move asynchronously, so
+     * the children are only shifted to keep their screen position once the window got there, in
+     * the pre-draw of its first frame at the new position. Until then they stay positioned
+     * against the old one.
+     */
+    private void moveFrame(int left, int top, int width, int height) {
+        HostFrameLayout frameLayout = getFrameLayout();
+        pendingFrameOffsetX = left;
+        pendingFrameOffsetY = top;
+        setContainerX(frameLayout, left);
+        setContainerY(frameLayout, top);
+        setContainerWidth(frameLayout, width);
+        setContainerHeight(frameLayout, height);
+        if (frameLayout.getParent() == null) {
+            // not shown, nothing to keep in place
+            applyFrameMove();
+        } else if (!frameMovePending) {
+            frameMovePending = true;
+            frameLayout.getViewTreeObserver().addOnPreDrawListener(frameMoveListener);
+        }
+    }
+
+    private void applyFrameMove() {
+        frameMovePending = false;
+        HostFrameLayout frameLayout = getFrameLayout();
+        float dx = frameOffsetX - pendingFrameOffsetX;
+        float dy = frameOffsetY - pendingFrameOffsetY;
+        frameOffsetX = pendingFrameOffsetX;
+        frameOffsetY = pendingFrameOffsetY;
+        if (frameLayout == null || (dx == 0 && dy == 0)) return;
+        // views positioned through this container keep their screen position
+        for (int i = 0; i < frameLayout.getChildCount(); i++) {
+            View child = frameLayout.getChildAt(i);
+            if (child instanceof ChatHead || child instanceof ChatHeadCloseButton) {
+                child.setTranslationX(child.getTranslationX() + dx);
+                child.setTranslationY(child.getTranslationY() + dy);
             }
         }
     }
 
+    @Override
+    public void onCloseButtonAppear() {
+        closeButtonVisible = true;
+        expandFrame();
+    }
+
+    @Override
+    public void onCloseButtonDisappear() {
+        closeButtonVisible = false;
+    }
+
+    @Override
+    protected void onHostConfigurationChanged(Configuration newConfig) {
+        super.onHostConfigurationChanged(newConfig);
+        expandFrame();
+    }
+
     @Override
     public void onArrangementChanged(ChatHeadArrangement oldArrangement,
             ChatHeadArrangement newArrangement) {
         currentArrangement = newArrangement;
-        if (oldArrangement instanceof MinimizedArrangement
-                && newArrangement instanceof MaximizedArrangement) {
-            // about to be maximized
-            WindowManager.LayoutParams layoutParams =
-                    getOrCreateLayoutParamsForContainer(motionCaptureView);
-            layoutParams.flags |= FLAG_NOT_FOCUSABLE | FLAG_NOT_TOUCHABLE;
-            if (motionCaptureView != null && motionCaptureView.getWindowToken() != null) {
-                windowManager.updateViewLayout(motionCaptureView, layoutParams);
+        captureBounds.setEmpty();
+        if (!(newArrangement instanceof MinimizedArrangement)) {
+            expandFrame();
+        }
+        WindowManager.LayoutParams captureParams =
+                getOrCreateLayoutParamsForContainer(motionCaptureView);
+        WindowManager.LayoutParams frameParams = getOrCreateLayoutParamsForContainer(getFrameLayout());
+        if (newArrangement instanceof MaximizedArrangement) {
+            measureMaximizeLatency();
+        }
+        if (panelLayout != null) {
+            if (newArrangement instanceof MaximizedArrangement) {
+                panelLayout.setVisibility(View.VISIBLE);
+                motionCaptureView.setVisibility(View.GONE);
+                return;
             }
+            panelLayout.setVisibility(View.INVISIBLE);
+            motionCaptureView.setVisibility(View.VISIBLE);
+        }
+        if (newArrangement instanceof MaximizedArrangement) {
+            // about to be maximized
+            setContainerFlags(motionCaptureView,
+                    captureParams.flags | FLAG_NOT_FOCUSABLE | FLAG_NOT_TOUCHABLE);
 
-            layoutParams = getOrCreateLayoutParamsForContainer(getFrameLayout());
-            layoutParams.flags &= ~FLAG_NOT_FOCUSABLE; //add focusability
-            layoutParams.flags &= ~FLAG_NOT_TOUCHABLE; //add focusability
-            layoutParams.flags |= FLAG_NOT_TOUCH_MODAL;
-
-            windowManager.updateViewLayout(getFrameLayout(), layoutParams);
+            int frameFlags = frameParams.flags;
+            frameFlags &= ~FLAG_NOT_FOCUSABLE; //add focusability
+            frameFlags &= ~FLAG_NOT_TOUCHABLE; //add focusability
+            frameFlags |= FLAG_NOT_TOUCH_MODAL;
+            setContainerFlags(getFrameLayout(), frameFlags);
 
             setContainerX(motionCaptureView, 0);
             setContainerY(motionCaptureView, 0);
-            setContainerWidth(motionCaptureView, getFrameLayout().getMeasuredWidth());
-            setContainerHeight(motionCaptureView, getFrameLayout().getMeasuredHeight());
+            setContainerWidth(motionCaptureView, getManager().getMaxWidth());
+            setContainerHeight(motionCaptureView, getManager().getMaxHeight());
         } else {
             // about to be minimized
-            WindowManager.LayoutParams layoutParams =
-                    getOrCreateLayoutParamsForContainer(motionCaptureView);
-            layoutParams.flags |= FLAG_NOT_FOCUSABLE; //remove focusability
-            layoutParams.flags &= ~FLAG_NOT_TOUCHABLE; //add touch
-            layoutParams.flags |= FLAG_NOT_TOUCH_MODAL; //add touch
-            if (motionCaptureView != null && motionCaptureView.getWindowToken() != null) {
-                windowManager.updateViewLayout(motionCaptureView, layoutParams);
+            int captureFlags = captureParams.flags;
+            captureFlags |= FLAG_NOT_FOCUSABLE; //remove focusability
+            captureFlags &= ~FLAG_NOT_TOUCHABLE; //add touch
+            captureFlags |= FLAG_NOT_TOUCH_MODAL; //add touch
+            setContainerFlags(motionCaptureView, captureFlags);
+
+            setContainerFlags(getFrameLayout(),
+                    frameParams.flags | FLAG_NOT_FOCUSABLE | FLAG_NOT_TOUCHABLE);
+        }
+        // focus and touchability should not wait for the next frame
+        getWindowUpdateBatcher().flush();
+    }
+
+    private void measureMaximizeLatency() {
+        final long tapUptime = lastTapUptime;
+        lastTapUptime = 0;
+        if (tapUptime == 0) return;
+        final View contentRoot = panelLayout != null ? panelLayout : getFrameLayout();
+        contentRoot.getViewTreeObserver()
+                .addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        contentRoot.getViewTreeObserver().removeOnPreDrawListener(this);
+                        lastMaximizeLatency = SystemClock.uptimeMillis() - tapUptime;
+                        if (maximizeLatencyListener != null) {
+                            maximizeLatencyListener.onMaximizeLatency(lastMaximizeLatency,
+                                    panelLayout != null);
+                        }
+                        return true;
+                    }
+                });
+    }
+
+    private boolean isPanelView(View view) {
+        return panelLayout != null
+                && (view instanceof ChatHeadOverlayView || view instanceof UpArrowLayout);
+    }
+
+    private ChatHead findChatHeadAt(float x, float y) {
+        List<ChatHead> chatHeads = getManager().getChatHeads();
+        for (int i = chatHeads.size() - 1; i >= 0; i--) {
+            ChatHead chatHead = chatHeads.get(i);
+            getChatHeadBounds(chatHead, headBounds);
+            if (headBounds.contains((int) x, (int) y)) {
+                return chatHead;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void sendToBack(View view) {
+        if (isPanelView(view)) {
+            // only the overlay and the content panel live there, this reorders at most once
+            if (panelLayout.indexOfChild(view) != 0) {
+                panelLayout.removeView(view);
+                panelLayout.addView(view, 0);
             }
+        } else {
+            super.sendToBack(view);
+        }
+    }
 
-            layoutParams = getOrCreateLayoutParamsForContainer(getFrameLayout());
-            layoutParams.flags |= FLAG_NOT_FOCUSABLE | FLAG_NOT_TOUCHABLE;
-            windowManager.updateViewLayout(getFrameLayout(), layoutParams);
+    @Override
+    public void bringToFront(View view) {
+        if (isPanelView(view)) {
+            if (panelLayout.indexOfChild(view) != panelLayout.getChildCount() - 1) {
+                view.bringToFront();
+            }
+        } else {
+            super.bringToFront(view);
         }
     }
 
     @Override
     public void addView(View view, ViewGroup.LayoutParams layoutParams) {
-        super.addView(view, layoutParams);
+        if (isPanelView(view)) {
+            panelLayout.addView(view, layoutParams);
+        } else {
+            super.addView(view, layoutParams);
+        }
         if (!motionCaptureViewAdded && getManager().getChatHeads().size() > 0) {
-            addContainer(motionCaptureView, true);
-            WindowManager.LayoutParams motionCaptureParams =
-                    getOrCreateLayoutParamsForContainer(motionCaptureView);
+            WindowManager.LayoutParams motionCaptureParams = createContainerLayoutParams(true);
             motionCaptureParams.width = 0;
             motionCaptureParams.height = 0;
-            windowManager.updateViewLayout(motionCaptureView, motionCaptureParams);
+            addContainer(motionCaptureView, motionCaptureParams);
             motionCaptureViewAdded = true;
         }
     }
 
     @Override
     public void removeView(View view) {
-        super.removeView(view);
-        if (getManager().getChatHeads().size() == 0) {
+        if (isPanelView(view)) {
+            panelLayout.removeView(view);
+        } else {
+            super.removeView(view);
+        }
+        if (motionCaptureViewAdded && getManager().getChatHeads().size() == 0) {
+            getWindowUpdateBatcher().cancel(motionCaptureView);
             windowManager.removeViewImmediate(motionCaptureView);
             motionCaptureViewAdded = false;
         }
@@ -271,24 +690,142 @@ public class WindowManagerContainer extends FrameChatHeadContainer {
         windowManager.removeView(motionCaptureView);
     }
 
+    @Override
     public void destroy() {
-        if (motionCaptureView != null && motionCaptureView.getWindowToken() != null) {
-            windowManager.removeViewImmediate(motionCaptureView);
+        if (getFrameLayout() == null) return;
+        if (windowUpdateBatcher != null) {
+            windowUpdateBatcher.release();
+            windowUpdateBatcher = null;
+        }
+        if (motionCaptureView != null && motionCaptureView.getParent() != null) {
+            getWindowManager().removeViewImmediate(motionCaptureView);
+        }
+        motionCaptureViewAdded = false;
+        if (frameMovePending) {
+            getFrameLayout().getViewTreeObserver().removeOnPreDrawListener(frameMoveListener);
+            frameMovePending = false;
+        }
+        getWindowManager().removeViewImmediate(getFrameLayout());
+        if (panelLayout != null) {
+            getWindowManager().removeViewImmediate(panelLayout);
+            panelLayout = null;
         }
-        windowManager.removeViewImmediate(getFrameLayout());
         mContext.unregisterReceiver(mBroadcastReceiver);
+        frameCompact = false;
+        frameBounds.setEmpty();
+        frameOffsetX = 0;
+        frameOffsetY = 0;
+        pendingFrameOffsetX = 0;
+        pendingFrameOffsetY = 0;
     }
 
+    /**
+     * While minimized, a gesture which starts on the hero chat head is handed straight to it. The
+     * capture window can be larger than the hero, so a gesture starting anywhere else, or while
+     * maximized, goes through the host layout, which hit-tests its children.
+     */
     protected class MotionCapturingTouchListener implements View.OnTouchListener {
+        private ChatHead touchTarget;
+
         @Override
         public boolean onTouch(View v, MotionEvent event) {
-            event.offsetLocation(getContainerX(v), getContainerY(v));
+            int action = event.getActionMasked();
+            if (action == MotionEvent.ACTION_UP) {
+                lastTapUptime = event.getEventTime();
+            }
+            if (action == MotionEvent.ACTION_DOWN) {
+                touchTarget = findDirectTouchTarget(getContainerX(v) + (int) event.getX(),
+                        getContainerY(v) + (int) event.getY());
+                captureGestureActive = true;
+            }
+            boolean handled;
+            ChatHead target = touchTarget;
+            if (target != null && target.getParent() != null) {
+                // hero local coordinates
+                event.offsetLocation(getContainerX(v) - getViewX(target),
+                        getContainerY(v) - getViewY(target));
+                handled = target.dispatchTouchEvent(event);
+            } else {
+                event.offsetLocation(getContainerX(v) - frameOffsetX, getContainerY(v) - frameOffsetY);
+                HostFrameLayout frameLayout = getFrameLayout();
+                handled = frameLayout != null && frameLayout.dispatchTouchEvent(event);
+            }
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                touchTarget = null;
+                captureGestureActive = false;
+                if (captureSyncOnSettle && target != null && target.isHero()
+                        && currentArrangement instanceof MinimizedArrangement) {
+                    captureBounds.setEmpty();
+                    syncCaptureWindow(target);
+                }
+            }
+            return handled;
+        }
+
+        /**
+         * @param x horizontal position of the touch in the coordinates of the chat heads
+         * @param y vertical position of the touch in the coordinates of the chat heads
+         * @return the hero if it is minimized and under the touch, null otherwise
+         */
+        private ChatHead findDirectTouchTarget(int x, int y) {
+            ChatHeadArrangement arrangement = getManager().getActiveArrangement();
+            if (!(arrangement instanceof MinimizedArrangement)) return null;
+            ChatHead hero = ((MinimizedArrangement) arrangement).getHero();
+            if (hero == null || hero.getParent() == null) return null;
+            getChatHeadBounds(hero, touchBounds);
+            return touchBounds.contains(x, y) ? hero : null;
+        }
+    }
+
+    public interface MaximizeLatencyListener {
+        /**
+         * @param latencyMillis time from the tap on the chat head to the first maximized frame
+         * @param prewarmed     true if the pre-warmed panel window was used
+         */
+        void onMaximizeLatency(long latencyMillis, boolean prewarmed);
+    }
+
+    /**
+     * Root of the pre-warmed panel window. Touches which start on a chat head are handed to the
+     * host window, which is not touchable itself.
+     */
+    private class PanelFrameLayout extends FrameLayout {
+        private boolean forwardingToHost;
+
+        public PanelFrameLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean dispatchTouchEvent(MotionEvent event) {
+            int action = event.getActionMasked();
+            if (action == MotionEvent.ACTION_DOWN) {
+                forwardingToHost = findChatHeadAt(event.getX(), event.getY()) != null;
+            }
+            boolean handled;
             HostFrameLayout frameLayout = getFrameLayout();
-            if (frameLayout != null) {
-                return frameLayout.dispatchTouchEvent(event);
+            if (forwardingToHost && frameLayout != null) {
+                handled = frameLayout.dispatchTouchEvent(event);
             } else {
-                return false;
+                handled = super.dispatchTouchEvent(event);
+            }
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                forwardingToHost = false;
+            }
+            return handled;
+        }
+
+        @Override
+        public boolean dispatchKeyEvent(KeyEvent event) {
+            boolean handled = super.dispatchKeyEvent(event);
+            if (!handled) {
+                if (event.getAction() == KeyEvent.ACTION_UP
+                        && event.getKeyCode() == KeyEvent.KEYCODE_BACK) {
+                    onBackPressed();
+                    return true;
+                }
             }
+            return handled;
         }
     }
 
@@ -0,0 +1,80 @@
+package com.flipkart.chatheads.ui.container;
+
+import android.view.View;
+import android.view.WindowManager;
+
+import com.flipkart.chatheads.ui.FrameScheduler;
+
+import java.util.ArrayList;
+
+/**
+ * Collects changes made to the {@link WindowManager.LayoutParams} of overlay windows and applies
+ * them with at most one {@link WindowManager#updateViewLayout} per window per frame.
+ * Callers mutate the layout params of a window and mark it dirty. The batcher flushes every dirty
+ * window in the {@link FrameScheduler#ORDER_FLUSH} step of the next frame, after the springs of
+ * that frame were stepped, or immediately when {@link #flush()} is called.
+ */
+public class WindowUpdateBatcher {
+
+    private final WindowManager windowManager;
+    private final ArrayList<View> dirtyWindows = new ArrayList<>(2);
+    private final FrameScheduler.FrameListener flushListener = new FrameScheduler.FrameListener() {
+        @Override
+        public boolean doFrame(long frameTimeMillis, long deltaMillis) {
+            flush();
+            return false;
+        }
+    };
+
+    public WindowUpdateBatcher(WindowManager windowManager) {
+        this.windowManager = windowManager;
+        FrameScheduler.getInstance().addFrameListener(flushListener, FrameScheduler.ORDER_FLUSH);
+    }
+
+    /**
+     * Marks the window as having pending layout param changes. The change will be sent to the
+     * window manager on the next frame.
+     *
+     * @param window root view of a window added through the window manager
+     */
+    public void markDirty(View window) {
+        if (!dirtyWindows.contains(window)) {
+            dirtyWindows.add(window);
+        }
+        FrameScheduler.getInstance().requestFrames(flushListener);
+    }
+
+    public boolean isDirty(View window) {
+        return dirtyWindows.contains(window);
+    }
+
+    /**
+     * Sends all pending changes to the window manager right away.
+     */
+    public void flush() {
+        for (int i = 0; i < dirtyWindows.size(); i++) {
+            View window = dirtyWindows.get(i);
+            // parent is the view root, which is only present while the window is added
+            if (window.getParent() != null) {
+                windowManager.updateViewLayout(window, window.getLayoutParams());
+            }
+        }
+        dirtyWindows.clear();
+    }
+
+    /**
+     * Drops every pending change and stops listening to frames. The batcher cannot be used
+     * afterwards.
+     */
+    public void release() {
+        dirtyWindows.clear();
+        FrameScheduler.getInstance().removeFrameListener(flushListener);
+    }
+
+    /**
+     * Drops pending changes for a window which is about to be removed.
+     */
+    public void cancel(View window) {
+        dirtyWindows.remove(window);
+    }
+}
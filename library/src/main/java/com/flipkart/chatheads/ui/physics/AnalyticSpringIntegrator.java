@@ -0,0 +1,136 @@
+package com.flipkart.chatheads.ui.physics;
+
+/**
+ * Evaluates the closed form solution of the damped harmonic oscillator, so position and velocity
+ * can be read at any time without stepping through the frames in between. Under damped,
+ * critically damped and over damped springs are handled separately.
+ * <p>
+ * Springs without tension have no rest position to move to and jump straight to the end value.
+ */
+public class AnalyticSpringIntegrator implements SpringIntegrator {
+
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public SpringIntegrator create() {
+            return new AnalyticSpringIntegrator();
+        }
+    };
+
+    private static final double CRITICAL_DAMPING_EPSILON = 1e-6;
+
+    private double end;
+    private double startDisplacement;
+    private double startVelocity;
+    private double naturalFrequency;
+    private double dampingRatio;
+    // under damped: decay and damped frequency, over damped: the two roots and their weights
+    private double decay;
+    private double dampedFrequency;
+    private double rootSlow;
+    private double rootFast;
+    private double weightSlow;
+    private double weightFast;
+
+    @Override
+    public void reset(double start, double velocity, double end, double tension, double friction) {
+        this.end = end;
+        startDisplacement = start - end;
+        startVelocity = velocity;
+        if (tension <= 0) {
+            naturalFrequency = 0;
+            return;
+        }
+        naturalFrequency = Math.sqrt(tension);
+        dampingRatio = friction / (2 * naturalFrequency);
+        decay = dampingRatio * naturalFrequency;
+        if (dampingRatio < 1 - CRITICAL_DAMPING_EPSILON) {
+            dampedFrequency = naturalFrequency * Math.sqrt(1 - dampingRatio * dampingRatio);
+        } else if (dampingRatio > 1 + CRITICAL_DAMPING_EPSILON) {
+            double spread = naturalFrequency * Math.sqrt(dampingRatio * dampingRatio - 1);
+            rootSlow = -decay + spread;
+            rootFast = -decay - spread;
+            weightFast = (startVelocity - rootSlow * startDisplacement) / (rootFast - rootSlow);
+            weightSlow = startDisplacement - weightFast;
+        }
+    }
+
+    private boolean isUnderDamped() {
+        return dampingRatio < 1 - CRITICAL_DAMPING_EPSILON;
+    }
+
+    private boolean isOverDamped() {
+        return dampingRatio > 1 + CRITICAL_DAMPING_EPSILON;
+    }
+
+    @Override
+    public double getPosition(double time) {
+        if (naturalFrequency == 0) return end;
+        double displacement;
+        if (isUnderDamped()) {
+            double sine = (startVelocity + decay * startDisplacement) / dampedFrequency;
+            displacement = Math.exp(-decay * time) * (startDisplacement * Math.cos(dampedFrequency * time)
+                    + sine * Math.sin(dampedFrequency * time));
+        } else if (isOverDamped()) {
+            displacement = weightSlow * Math.exp(rootSlow * time) + weightFast * Math.exp(rootFast * time);
+        } else {
+            double linear = startVelocity + naturalFrequency * startDisplacement;
+            displacement = (startDisplacement + linear * time) * Math.exp(-naturalFrequency * time);
+        }
+        return end + displacement;
+    }
+
+    @Override
+    public double getVelocity(double time) {
+        if (naturalFrequency == 0) return 0;
+        if (isUnderDamped()) {
+            double sine = (decay * startVelocity + naturalFrequency * naturalFrequency * startDisplacement)
+                    / dampedFrequency;
+            return Math.exp(-decay * time) * (startVelocity * Math.cos(dampedFrequency * time)
+                    - sine * Math.sin(dampedFrequency * time));
+        } else if (isOverDamped()) {
+            return rootSlow * weightSlow * Math.exp(rootSlow * time)
+                    + rootFast * weightFast * Math.exp(rootFast * time);
+        } else {
+            double linear = startVelocity + naturalFrequency * startDisplacement;
+            return (startVelocity - naturalFrequency * linear * time) * Math.exp(-naturalFrequency * time);
+        }
+    }
+
+    /**
+     * Solved from an exponential envelope of the motion, so the result is an upper bound rather
+     * than the first time the thresholds are met.
+     */
+    @Override
+    public double getSettleTime(double restSpeedThreshold, double restDisplacementThreshold) {
+        if (naturalFrequency == 0) return 0;
+        double displacementBound;
+        double velocityBound;
+        double rate;
+        if (isUnderDamped()) {
+            double sine = (startVelocity + decay * startDisplacement) / dampedFrequency;
+            displacementBound = Math.hypot(startDisplacement, sine);
+            velocityBound = displacementBound * naturalFrequency;
+            rate = decay;
+        } else if (isOverDamped()) {
+            displacementBound = Math.abs(weightSlow) + Math.abs(weightFast);
+            velocityBound = Math.abs(rootSlow * weightSlow) + Math.abs(rootFast * weightFast);
+            rate = -rootSlow;
+        } else {
+            // (a + b * t) * e^(-w * t) <= (a + 2 * b / (e * w)) * e^(-w * t / 2)
+            double linear = Math.abs(startVelocity + naturalFrequency * startDisplacement);
+            double slack = 2 / (Math.E * naturalFrequency);
+            displacementBound = Math.abs(startDisplacement) + linear * slack;
+            velocityBound = Math.abs(startVelocity) + naturalFrequency * linear * slack;
+            rate = naturalFrequency / 2;
+        }
+        double time = Math.max(timeToDecay(displacementBound, restDisplacementThreshold, rate),
+                timeToDecay(velocityBound, restSpeedThreshold, rate));
+        return Math.max(0, time);
+    }
+
+    private static double timeToDecay(double bound, double threshold, double rate) {
+        if (bound <= threshold) return 0;
+        if (rate <= 0) return Double.POSITIVE_INFINITY;
+        return Math.log(bound / threshold) / rate;
+    }
+}
@@ -0,0 +1,176 @@
+package com.flipkart.chatheads.ui.physics;
+
+/**
+ * Works out where a released chat head comes to rest, from its position and velocity at release.
+ * Without tension a spring only loses speed to friction, so it glides in a straight line and stops
+ * at {@code position + velocity / friction}. That point is then held to the bounds, optionally
+ * snapped to the left or right edge, and replaced by the capture zone if the glide passes through
+ * it.
+ * <p>
+ * Knowing the resting point at release lets arrangements give the springs a single end value
+ * instead of correcting their course while they move. Not thread safe.
+ */
+public class FlingResolver {
+
+    private final double friction;
+    private double left;
+    private double top;
+    private double right = Double.MAX_VALUE;
+    private double bottom = Double.MAX_VALUE;
+    private boolean snapToHorizontalEdges;
+    private double minSnapVelocity;
+    private boolean hasCaptureZone;
+    private double captureX;
+    private double captureY;
+    private double captureRadius;
+
+    private double startX;
+    private double startY;
+    private double landingX;
+    private double landingY;
+    private boolean horizontalBoundHit;
+    private boolean verticalBoundHit;
+    private boolean captured;
+
+    /**
+     * @param friction friction of the spring the chat head glides with, in the units of
+     *                 {@link com.facebook.rebound.SpringConfig}
+     */
+    public FlingResolver(double friction) {
+        if (friction <= 0) {
+            throw new IllegalArgumentException("A glide without friction never stops");
+        }
+        this.friction = friction;
+    }
+
+    /**
+     * Sets the range of positions a chat head may come to rest in.
+     */
+    public void setBounds(double left, double top, double right, double bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = Math.max(left, right);
+        this.bottom = Math.max(top, bottom);
+    }
+
+    /**
+     * @param snap        if true a chat head always comes to rest at the left or the right bound
+     * @param minVelocity horizontal speed from which the direction of the fling picks the edge,
+     *                    slower chat heads go to the closer one
+     */
+    public void setSnapToHorizontalEdges(boolean snap, double minVelocity) {
+        snapToHorizontalEdges = snap;
+        minSnapVelocity = minVelocity;
+    }
+
+    /**
+     * A chat head which glides within the radius of the given position is captured there.
+     */
+    public void setCaptureZone(double x, double y, double radius) {
+        hasCaptureZone = true;
+        captureX = x;
+        captureY = y;
+        captureRadius = radius;
+    }
+
+    public void clearCaptureZone() {
+        hasCaptureZone = false;
+    }
+
+    public void resolve(double x, double y, double velocityX, double velocityY) {
+        startX = x;
+        startY = y;
+        double freeX = x + velocityX / friction;
+        double freeY = y + velocityY / friction;
+        double boundedX = clamp(freeX, left, right);
+        double boundedY = clamp(freeY, top, bottom);
+        horizontalBoundHit = boundedX != freeX;
+        verticalBoundHit = boundedY != freeY;
+
+        captured = hasCaptureZone && isWithinCaptureZone(x, y, boundedX, boundedY);
+        if (captured) {
+            landingX = captureX;
+            landingY = captureY;
+            horizontalBoundHit = false;
+            verticalBoundHit = false;
+            return;
+        }
+
+        if (snapToHorizontalEdges) {
+            boolean toLeft;
+            if (Math.abs(velocityX) < minSnapVelocity) {
+                toLeft = x - left < right - x;
+            } else {
+                toLeft = velocityX < 0;
+            }
+            landingX = toLeft ? left : right;
+            // a glide which would stop short of the edge is sped up to reach it
+            horizontalBoundHit = toLeft ? freeX < left : freeX > right;
+        } else {
+            landingX = boundedX;
+        }
+        landingY = boundedY;
+    }
+
+    public double getLandingX() {
+        return landingX;
+    }
+
+    public double getLandingY() {
+        return landingY;
+    }
+
+    public boolean isCaptured() {
+        return captured;
+    }
+
+    /**
+     * @return true if the chat head would have glided past the horizontal bounds, so that it
+     * needs a spring with tension to stop at {@link #getLandingX()}
+     */
+    public boolean hasHitHorizontalBound() {
+        return horizontalBoundHit;
+    }
+
+    /**
+     * @return true if the chat head would have glided past the vertical bounds, so that it needs
+     * a spring with tension to stop at {@link #getLandingY()}
+     */
+    public boolean hasHitVerticalBound() {
+        return verticalBoundHit;
+    }
+
+    /**
+     * @return the horizontal velocity with which a glide from the release position stops exactly
+     * at {@link #getLandingX()}
+     */
+    public double getGlideVelocityX() {
+        return (landingX - startX) * friction;
+    }
+
+    /**
+     * @return the vertical velocity with which a glide from the release position stops exactly at
+     * {@link #getLandingY()}
+     */
+    public double getGlideVelocityY() {
+        return (landingY - startY) * friction;
+    }
+
+    private boolean isWithinCaptureZone(double fromX, double fromY, double toX, double toY) {
+        // closest point of the glide to the zone
+        double dx = toX - fromX;
+        double dy = toY - fromY;
+        double lengthSquared = dx * dx + dy * dy;
+        double fraction = 0;
+        if (lengthSquared > 0) {
+            fraction = clamp(((captureX - fromX) * dx + (captureY - fromY) * dy) / lengthSquared, 0, 1);
+        }
+        double closestX = fromX + dx * fraction;
+        double closestY = fromY + dy * fraction;
+        return Math.hypot(captureX - closestX, captureY - closestY) < captureRadius;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
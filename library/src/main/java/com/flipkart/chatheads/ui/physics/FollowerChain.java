@@ -0,0 +1,156 @@
+package com.flipkart.chatheads.ui.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A chain of items, each trailing the one in front of it, with the front item trailing a leader
+ * position which is set from outside. Every item keeps its slot in a {@link SpringBatch} for as
+ * long as it is in the chain, so adding and removing items is constant work and never re-creates
+ * the springs of the others.
+ * <p>
+ * Not thread safe.
+ */
+public class FollowerChain<T> implements FollowerEngine<T> {
+
+    private static final int NO_SLOT = -1;
+
+    private final SpringBatch springs;
+    private final double tension;
+    private final double friction;
+    private final Map<T, Integer> slots = new HashMap<>();
+    private final List<T> items = new ArrayList<>();
+    /**
+     * Slot right behind each slot, away from the leader
+     */
+    private int[] behind;
+    private int front = NO_SLOT;
+    private double leaderX;
+    private double leaderY;
+    private double linkOffsetX;
+    private double linkOffsetY;
+    private FollowerEngine.Listener<T> listener;
+
+    public FollowerChain(int initialCapacity, double tension, double friction) {
+        this.tension = tension;
+        this.friction = friction;
+        springs = new SpringBatch(initialCapacity);
+        behind = new int[Math.max(1, initialCapacity)];
+        springs.setListener(new SpringBatch.Listener() {
+            @Override
+            public void onSpringBatchUpdate(SpringBatch batch, int index) {
+                if (listener != null) {
+                    listener.onFollowerMoved(items.get(index), batch.getX(index), batch.getY(index));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void setListener(FollowerEngine.Listener<T> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    @Override
+    public boolean contains(T item) {
+        return slots.containsKey(item);
+    }
+
+    @Override
+    public T getFront() {
+        return front == NO_SLOT ? null : items.get(front);
+    }
+
+    /**
+     * Adds the item right behind the leader, at rest at the given position.
+     */
+    @Override
+    public void add(T item, double x, double y) {
+        if (slots.containsKey(item)) return;
+        int slot = springs.add(x, y, tension, friction);
+        if (slot == items.size()) {
+            items.add(item);
+        } else {
+            items.set(slot, item);
+        }
+        if (slot >= behind.length) {
+            behind = Arrays.copyOf(behind, Math.max(slot + 1, behind.length * 2));
+        }
+        slots.put(item, slot);
+        behind[slot] = front;
+        if (front != NO_SLOT) {
+            springs.setLeader(front, slot);
+        }
+        springs.setLeader(slot, SpringBatch.NO_LEADER);
+        front = slot;
+        updateFrontTarget();
+    }
+
+    /**
+     * Removes the item, the one behind it moves up to follow the one in front of it.
+     *
+     * @return false if the item was not in the chain
+     */
+    @Override
+    public boolean remove(T item) {
+        Integer boxed = slots.remove(item);
+        if (boxed == null) return false;
+        int slot = boxed;
+        int ahead = springs.getLeader(slot);
+        int next = behind[slot];
+        if (next != NO_SLOT) {
+            springs.setLeader(next, ahead);
+        }
+        if (ahead != SpringBatch.NO_LEADER) {
+            behind[ahead] = next;
+        } else {
+            front = next;
+            updateFrontTarget();
+        }
+        springs.remove(slot);
+        items.set(slot, null);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        springs.clear();
+        slots.clear();
+        items.clear();
+        front = NO_SLOT;
+    }
+
+    @Override
+    public void setLeaderPosition(double x, double y) {
+        leaderX = x;
+        leaderY = y;
+        updateFrontTarget();
+    }
+
+    @Override
+    public void setLinkOffset(double x, double y) {
+        linkOffsetX = x;
+        linkOffsetY = y;
+        springs.setLinkOffset(x, y);
+        updateFrontTarget();
+    }
+
+    private void updateFrontTarget() {
+        if (front != NO_SLOT) {
+            springs.setTarget(front, leaderX + linkOffsetX, leaderY + linkOffsetY);
+        }
+    }
+
+    @Override
+    public boolean advance(double deltaSeconds) {
+        return springs.advance(deltaSeconds);
+    }
+}
@@ -0,0 +1,47 @@
+package com.flipkart.chatheads.ui.physics;
+
+/**
+ * Moves a stack of items behind a leader position which is set from outside, once per frame.
+ * The item added last is the one right behind the leader.
+ */
+public interface FollowerEngine<T> {
+
+    interface Listener<T> {
+        void onFollowerMoved(T item, double x, double y);
+    }
+
+    void setListener(Listener<T> listener);
+
+    /**
+     * Adds the item right behind the leader, starting at the given position.
+     */
+    void add(T item, double x, double y);
+
+    /**
+     * @return false if the item was not following
+     */
+    boolean remove(T item);
+
+    boolean contains(T item);
+
+    /**
+     * @return the item right behind the leader, or null if there are none
+     */
+    T getFront();
+
+    int size();
+
+    void clear();
+
+    void setLeaderPosition(double x, double y);
+
+    /**
+     * Sets how far each item rests from the one in front of it, or from the leader.
+     */
+    void setLinkOffset(double x, double y);
+
+    /**
+     * @return true while any item is moving
+     */
+    boolean advance(double deltaSeconds);
+}
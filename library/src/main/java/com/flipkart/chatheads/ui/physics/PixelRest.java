@@ -0,0 +1,55 @@
+package com.flipkart.chatheads.ui.physics;
+
+/**
+ * Tells when a spring whose position is drawn rounded to whole pixels can no longer change what
+ * is drawn. Springs keep moving by fractions of a pixel long after that point until their own
+ * rest thresholds are met, and every one of those frames costs as much as a visible one.
+ * <p>
+ * With tension, a damped spring never has more energy than it has now, so it stays within
+ * {@code sqrt(displacement^2 + velocity^2 / tension)} of its end value. Without tension it glides
+ * in one direction and stops {@code velocity / friction} further on. The spring has visually come
+ * to rest once every position it can still reach rounds to the same pixel.
+ */
+public final class PixelRest {
+
+    private PixelRest() {
+    }
+
+    public static boolean isSettled(double position, double velocity, double end, double tension,
+            double friction) {
+        if (tension <= 0) {
+            if (friction <= 0) return velocity == 0;
+            return Math.round(position) == Math.round(position + velocity / friction);
+        }
+        double displacement = position - end;
+        double reach = Math.sqrt(displacement * displacement + velocity * velocity / tension);
+        return Math.round(end - reach) == Math.round(end + reach);
+    }
+
+    /**
+     * @return where the spring would finally stop, its end value if it has tension
+     */
+    public static double getRestingPosition(double position, double velocity, double end,
+            double tension, double friction) {
+        if (tension > 0) return end;
+        return friction > 0 ? position + velocity / friction : position;
+    }
+
+    /**
+     * @return an estimate, in seconds, of how long the spring would keep moving until it met the
+     * given rest thresholds
+     */
+    public static double getRemainingTime(double position, double velocity, double end,
+            double tension, double friction, double restSpeedThreshold,
+            double restDisplacementThreshold) {
+        if (tension <= 0) {
+            double speed = Math.abs(velocity);
+            if (speed <= restSpeedThreshold) return 0;
+            if (friction <= 0) return Double.POSITIVE_INFINITY;
+            return Math.log(speed / restSpeedThreshold) / friction;
+        }
+        AnalyticSpringIntegrator integrator = new AnalyticSpringIntegrator();
+        integrator.reset(position, velocity, end, tension, friction);
+        return integrator.getSettleTime(restSpeedThreshold, restDisplacementThreshold);
+    }
+}
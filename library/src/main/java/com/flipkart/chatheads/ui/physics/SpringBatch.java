@@ -0,0 +1,393 @@
+package com.flipkart.chatheads.ui.physics;
+
+import java.util.Arrays;
+
+/**
+ * Steps many two dimensional springs together. State is kept in parallel primitive arrays, one
+ * slot per spring. Only slots which are not at rest are kept in a compact list and stepped, so a
+ * settled stack costs nothing however many slots it has. Listeners are notified once per slot and
+ * frame, with both axes updated.
+ * <p>
+ * A slot either moves towards its own target or follows another slot (its leader), in which case
+ * the current position of the leader plus the link offset is the target. This is how chains of
+ * followers are built. A settled follower is woken when its leader moves it out of the rest
+ * threshold. Removed slots are re-used by later adds, so indices of other slots stay valid.
+ * <p>
+ * Each {@link #advance(double)} is a single step over the frame time, clamped to 64ms, with unit
+ * mass and tension and friction in the units of {@link com.facebook.rebound.SpringConfig}, as in
+ * Rebound. The step is the closed form motion of the spring from {@link AnalyticSpringIntegrator}
+ * with the goal held where it was at the start of the step, so it is stable at any frame time and
+ * a slot with a fixed target follows the exact spring path rather than Rebound's RK4
+ * approximation of it. A follower lags its leader by one step. Like a Rebound spring, a settled
+ * slot stays put while its goal is within the rest displacement threshold.
+ * <p>
+ * Only the followers of the minimized arrangement run on it. The x, y and scale springs of chat
+ * heads stay Rebound springs, as arrangements and users drive them through the Spring API and
+ * Spring can't be extended outside its package. Not thread safe.
+ */
+public class SpringBatch {
+
+    public static final int NO_LEADER = -1;
+
+    private static final double MAX_DELTA_TIME_SEC = 0.064;
+    private static final double DEFAULT_REST_THRESHOLD = 0.005;
+
+    public interface Listener {
+        /**
+         * Called after a step for each slot which moved in that step.
+         */
+        void onSpringBatchUpdate(SpringBatch batch, int index);
+    }
+
+    private int size;
+    private double[] positionX;
+    private double[] positionY;
+    private double[] velocityX;
+    private double[] velocityY;
+    private double[] targetX;
+    private double[] targetY;
+    private float[] tension;
+    private float[] friction;
+    private int[] leader;
+    /**
+     * Followers of each slot, as a linked list through {@link #nextFollower}
+     */
+    private int[] firstFollower;
+    private int[] nextFollower;
+    private boolean[] resting;
+    private boolean[] removed;
+    /**
+     * Slots which are not at rest, in the first {@link #activeCount} entries
+     */
+    private int[] active;
+    private boolean[] queued;
+    private int activeCount;
+    private int[] movedSlots;
+    private int[] freeSlots;
+    private int freeCount;
+    private double linkOffsetX;
+    private double linkOffsetY;
+    private double restSpeedThreshold = DEFAULT_REST_THRESHOLD;
+    private double restDisplacementThreshold = DEFAULT_REST_THRESHOLD;
+    private Listener listener;
+
+    // coefficients of the last step, shared by the slots with the same config:
+    // position = stepPosition * (displacement, velocity), velocity = stepVelocity * (...)
+    private final AnalyticSpringIntegrator integrator = new AnalyticSpringIntegrator();
+    private double stepTime = -1;
+    private float stepTension;
+    private float stepFriction;
+    private double stepPositionFromDisplacement;
+    private double stepPositionFromVelocity;
+    private double stepVelocityFromDisplacement;
+    private double stepVelocityFromVelocity;
+
+    public SpringBatch(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        positionX = new double[capacity];
+        positionY = new double[capacity];
+        velocityX = new double[capacity];
+        velocityY = new double[capacity];
+        targetX = new double[capacity];
+        targetY = new double[capacity];
+        tension = new float[capacity];
+        friction = new float[capacity];
+        leader = new int[capacity];
+        firstFollower = new int[capacity];
+        nextFollower = new int[capacity];
+        resting = new boolean[capacity];
+        removed = new boolean[capacity];
+        active = new int[capacity];
+        queued = new boolean[capacity];
+        movedSlots = new int[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setRestThresholds(double restSpeedThreshold, double restDisplacementThreshold) {
+        this.restSpeedThreshold = restSpeedThreshold;
+        this.restDisplacementThreshold = restDisplacementThreshold;
+    }
+
+    /**
+     * @return number of slots, including removed ones which were not re-used yet
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a slot at rest at the given position.
+     *
+     * @return index of the new slot
+     */
+    public int add(double x, double y, double tension, double friction) {
+        int index;
+        if (freeCount > 0) {
+            index = freeSlots[--freeCount];
+        } else {
+            ensureCapacity(size + 1);
+            index = size++;
+        }
+        removed[index] = false;
+        positionX[index] = x;
+        positionY[index] = y;
+        velocityX[index] = 0;
+        velocityY[index] = 0;
+        targetX[index] = x;
+        targetY[index] = y;
+        this.tension[index] = (float) tension;
+        this.friction[index] = (float) friction;
+        leader[index] = NO_LEADER;
+        firstFollower[index] = NO_LEADER;
+        nextFollower[index] = NO_LEADER;
+        resting[index] = true;
+        return index;
+    }
+
+    /**
+     * Stops stepping the slot. Slots which follow it have to be given another leader.
+     */
+    public void remove(int index) {
+        if (removed[index]) return;
+        unlinkFollower(index);
+        leader[index] = NO_LEADER;
+        removed[index] = true;
+        // dropped from the active slots in the next step
+        resting[index] = true;
+        freeSlots[freeCount++] = index;
+    }
+
+    public boolean isRemoved(int index) {
+        return removed[index];
+    }
+
+    /**
+     * Sets the offset from the position of a leader to the target of the slots following it.
+     */
+    public void setLinkOffset(double x, double y) {
+        if (linkOffsetX == x && linkOffsetY == y) return;
+        linkOffsetX = x;
+        linkOffsetY = y;
+        for (int i = 0; i < size; i++) {
+            if (!removed[i] && leader[i] != NO_LEADER) {
+                wake(i);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(queued, 0, size, false);
+        size = 0;
+        freeCount = 0;
+        activeCount = 0;
+    }
+
+    public void setLeader(int index, int leaderIndex) {
+        unlinkFollower(index);
+        leader[index] = leaderIndex;
+        if (leaderIndex != NO_LEADER) {
+            nextFollower[index] = firstFollower[leaderIndex];
+            firstFollower[leaderIndex] = index;
+        }
+        wake(index);
+    }
+
+    public int getLeader(int index) {
+        return leader[index];
+    }
+
+    public void setTarget(int index, double x, double y) {
+        if (targetX[index] == x && targetY[index] == y) return;
+        targetX[index] = x;
+        targetY[index] = y;
+        if (resting[index] && isWithinRest(x - positionX[index], y - positionY[index])) return;
+        wake(index);
+    }
+
+    public void setPosition(int index, double x, double y) {
+        positionX[index] = x;
+        positionY[index] = y;
+        wake(index);
+    }
+
+    public void setVelocity(int index, double x, double y) {
+        velocityX[index] = x;
+        velocityY[index] = y;
+        wake(index);
+    }
+
+    public void setConfig(int index, double tension, double friction) {
+        this.tension[index] = (float) tension;
+        this.friction[index] = (float) friction;
+    }
+
+    public double getX(int index) {
+        return positionX[index];
+    }
+
+    public double getY(int index) {
+        return positionY[index];
+    }
+
+    public double getVelocityX(int index) {
+        return velocityX[index];
+    }
+
+    public double getVelocityY(int index) {
+        return velocityY[index];
+    }
+
+    public boolean isAtRest() {
+        return activeCount == 0;
+    }
+
+    /**
+     * Advances every slot which is not at rest and notifies the listener for the ones that moved.
+     *
+     * @param deltaSeconds time since the last step
+     * @return true if any slot is still moving
+     */
+    public boolean advance(double deltaSeconds) {
+        if (activeCount == 0) return false;
+        double time = Math.min(deltaSeconds, MAX_DELTA_TIME_SEC);
+        if (time <= 0) return true;
+        final double[] px = positionX, py = positionY, vx = velocityX, vy = velocityY;
+        final double[] tx = targetX, ty = targetY;
+        final int[] lead = leader, next = nextFollower;
+        final boolean[] rest = resting;
+        final double offsetX = linkOffsetX, offsetY = linkOffsetY;
+        // index based, followers woken by this step are appended and stepped too
+        for (int n = 0; n < activeCount; n++) {
+            int i = active[n];
+            if (rest[i]) continue;
+            int l = lead[i];
+            double goalX = l >= 0 ? px[l] + offsetX : tx[i];
+            double goalY = l >= 0 ? py[l] + offsetY : ty[i];
+            prepareStep(time, tension[i], friction[i]);
+            double dx = px[i] - goalX;
+            double dy = py[i] - goalY;
+            double speedX = vx[i];
+            double speedY = vy[i];
+            px[i] = goalX + stepPositionFromDisplacement * dx + stepPositionFromVelocity * speedX;
+            py[i] = goalY + stepPositionFromDisplacement * dy + stepPositionFromVelocity * speedY;
+            vx[i] = stepVelocityFromDisplacement * dx + stepVelocityFromVelocity * speedX;
+            vy[i] = stepVelocityFromDisplacement * dy + stepVelocityFromVelocity * speedY;
+            for (int f = firstFollower[i]; f != NO_LEADER; f = next[f]) {
+                if (rest[f] && !isWithinRest(px[i] + offsetX - px[f], py[i] + offsetY - py[f])) {
+                    wake(f);
+                }
+            }
+        }
+        // settle, and keep only the slots still moving
+        int movedCount = 0;
+        int remaining = 0;
+        for (int n = 0; n < activeCount; n++) {
+            int i = active[n];
+            if (rest[i]) {
+                // removed, or woken and settled again without being stepped
+                queued[i] = false;
+                continue;
+            }
+            int l = lead[i];
+            double goalX = l >= 0 ? px[l] + offsetX : tx[i];
+            double goalY = l >= 0 ? py[l] + offsetY : ty[i];
+            boolean slotAtRest = Math.abs(vx[i]) <= restSpeedThreshold
+                    && Math.abs(vy[i]) <= restSpeedThreshold
+                    && Math.abs(goalX - px[i]) <= restDisplacementThreshold
+                    && Math.abs(goalY - py[i]) <= restDisplacementThreshold;
+            if (slotAtRest) {
+                if (px[i] != goalX || py[i] != goalY || vx[i] != 0 || vy[i] != 0) {
+                    px[i] = goalX;
+                    py[i] = goalY;
+                    vx[i] = 0;
+                    vy[i] = 0;
+                    movedSlots[movedCount++] = i;
+                }
+                rest[i] = true;
+                queued[i] = false;
+            } else {
+                movedSlots[movedCount++] = i;
+                active[remaining++] = i;
+            }
+        }
+        activeCount = remaining;
+        if (listener != null) {
+            for (int n = 0; n < movedCount; n++) {
+                listener.onSpringBatchUpdate(this, movedSlots[n]);
+            }
+        }
+        return activeCount > 0;
+    }
+
+    private void wake(int index) {
+        resting[index] = false;
+        if (queued[index]) return;
+        queued[index] = true;
+        active[activeCount++] = index;
+    }
+
+    private void unlinkFollower(int index) {
+        int l = leader[index];
+        if (l == NO_LEADER) return;
+        if (firstFollower[l] == index) {
+            firstFollower[l] = nextFollower[index];
+        } else {
+            for (int f = firstFollower[l]; f != NO_LEADER; f = nextFollower[f]) {
+                if (nextFollower[f] == index) {
+                    nextFollower[f] = nextFollower[index];
+                    break;
+                }
+            }
+        }
+        nextFollower[index] = NO_LEADER;
+    }
+
+    /**
+     * Computes how a step of the given length maps displacement and velocity, unless the last
+     * slot stepped had the same config.
+     */
+    private void prepareStep(double time, float tension, float friction) {
+        if (time == stepTime && tension == stepTension && friction == stepFriction) return;
+        stepTime = time;
+        stepTension = tension;
+        stepFriction = friction;
+        // the motion is linear in the start displacement and velocity
+        integrator.reset(1, 0, 0, tension, friction);
+        stepPositionFromDisplacement = integrator.getPosition(time);
+        stepVelocityFromDisplacement = integrator.getVelocity(time);
+        integrator.reset(0, 1, 0, tension, friction);
+        stepPositionFromVelocity = integrator.getPosition(time);
+        stepVelocityFromVelocity = integrator.getVelocity(time);
+    }
+
+    private boolean isWithinRest(double displacementX, double displacementY) {
+        return Math.abs(displacementX) <= restDisplacementThreshold
+                && Math.abs(displacementY) <= restDisplacementThreshold;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= positionX.length) return;
+        int newCapacity = Math.max(capacity, positionX.length * 2);
+        positionX = Arrays.copyOf(positionX, newCapacity);
+        positionY = Arrays.copyOf(positionY, newCapacity);
+        velocityX = Arrays.copyOf(velocityX, newCapacity);
+        velocityY = Arrays.copyOf(velocityY, newCapacity);
+        targetX = Arrays.copyOf(targetX, newCapacity);
+        targetY = Arrays.copyOf(targetY, newCapacity);
+        tension = Arrays.copyOf(tension, newCapacity);
+        friction = Arrays.copyOf(friction, newCapacity);
+        leader = Arrays.copyOf(leader, newCapacity);
+        firstFollower = Arrays.copyOf(firstFollower, newCapacity);
+        nextFollower = Arrays.copyOf(nextFollower, newCapacity);
+        resting = Arrays.copyOf(resting, newCapacity);
+        removed = Arrays.copyOf(removed, newCapacity);
+        active = Arrays.copyOf(active, newCapacity);
+        queued = Arrays.copyOf(queued, newCapacity);
+        movedSlots = Arrays.copyOf(movedSlots, newCapacity);
+        freeSlots = Arrays.copyOf(freeSlots, newCapacity);
+    }
+}
@@ -0,0 +1,27 @@
+package com.flipkart.chatheads.ui.physics;
+
+/**
+ * Computes the motion of a one dimensional spring with unit mass which starts at a position and
+ * velocity and moves towards an end value. Tension and friction are in the units of
+ * {@link com.facebook.rebound.SpringConfig}.
+ * <p>
+ * Used for scripted moves, where nothing but the spring itself influences the motion, so the
+ * whole path is known once the move starts. Times are in seconds since the start of the move.
+ */
+public interface SpringIntegrator {
+
+    interface Factory {
+        SpringIntegrator create();
+    }
+
+    void reset(double start, double velocity, double end, double tension, double friction);
+
+    double getPosition(double time);
+
+    double getVelocity(double time);
+
+    /**
+     * @return a time after which the spring stays within the thresholds of its end value
+     */
+    double getSettleTime(double restSpeedThreshold, double restDisplacementThreshold);
+}
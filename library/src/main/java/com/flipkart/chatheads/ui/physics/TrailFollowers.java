@@ -0,0 +1,295 @@
+package com.flipkart.chatheads.ui.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves followers along the recent path of the leader instead of simulating springs. The leader
+ * position is recorded at a fixed interval into a ring buffer, and the follower at rank n, the one
+ * right behind the leader being rank 1, is placed where the leader was n lags ago plus n link
+ * offsets. Reading a follower position is two buffer reads and an interpolation.
+ * <p>
+ * When followers are added or removed the ranks of the others ease to their new values, so that
+ * the stack closes up smoothly. New followers blend from where they were added onto the path in
+ * the same way. The listener only hears about followers whose position changed.
+ * <p>
+ * Followers are indexed by item, and removed ones are only dropped from the stack in the next
+ * {@link #advance(double)}, so adding, removing and looking up items is constant work. Not thread
+ * safe.
+ */
+public class TrailFollowers<T> implements FollowerEngine<T> {
+
+    private static final double SAMPLE_INTERVAL = 1 / 120.0;
+    /**
+     * How fast ranks and blends approach their targets, per second
+     */
+    private static final double RANK_EASING_RATE = 12;
+    private static final double EASING_EPSILON = 0.0001;
+
+    private final double lagPerRank;
+    /**
+     * Back of the stack first, may still hold removed followers until the next advance
+     */
+    private final List<Follower<T>> followers = new ArrayList<>();
+    private final Map<T, Follower<T>> index = new HashMap<>();
+    private int removedCount;
+    private double[] trailX;
+    private double[] trailY;
+    private int mask;
+    private long latestSample = -1;
+    private double time;
+    private double leaderX;
+    private double leaderY;
+    private double previousLeaderX;
+    private double previousLeaderY;
+    private double previousTime;
+    private double lastMoveTime;
+    private double linkOffsetX;
+    private double linkOffsetY;
+    private boolean moving;
+    private FollowerEngine.Listener<T> listener;
+
+    private static class Follower<T> {
+        final T item;
+        final double startX;
+        final double startY;
+        double rank;
+        /**
+         * 0 at the start position, 1 on the path
+         */
+        double blend;
+        double x = Double.NaN;
+        double y = Double.NaN;
+        boolean removed;
+
+        Follower(T item, double startX, double startY, double rank) {
+            this.item = item;
+            this.startX = startX;
+            this.startY = startY;
+            this.rank = rank;
+        }
+    }
+
+    /**
+     * @param lagPerRank how far behind in time each follower is from the one in front, in seconds
+     */
+    public TrailFollowers(double lagPerRank) {
+        this.lagPerRank = lagPerRank;
+        allocateTrail(16);
+    }
+
+    @Override
+    public void setListener(FollowerEngine.Listener<T> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void add(T item, double x, double y) {
+        if (index.containsKey(item)) return;
+        Follower<T> follower = new Follower<>(item, x, y, 1);
+        followers.add(follower);
+        index.put(item, follower);
+        ensureTrailCapacity();
+        moving = true;
+    }
+
+    @Override
+    public boolean remove(T item) {
+        Follower<T> follower = index.remove(item);
+        if (follower == null) return false;
+        follower.removed = true;
+        removedCount++;
+        moving = true;
+        return true;
+    }
+
+    @Override
+    public boolean contains(T item) {
+        return index.containsKey(item);
+    }
+
+    @Override
+    public T getFront() {
+        for (int i = followers.size() - 1; i >= 0; i--) {
+            Follower<T> follower = followers.get(i);
+            if (!follower.removed) return follower.item;
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public void clear() {
+        followers.clear();
+        index.clear();
+        removedCount = 0;
+        latestSample = -1;
+        moving = false;
+    }
+
+    @Override
+    public void setLeaderPosition(double x, double y) {
+        if (x == leaderX && y == leaderY && latestSample >= 0) return;
+        leaderX = x;
+        leaderY = y;
+        lastMoveTime = time;
+        moving = true;
+        if (latestSample < 0) {
+            // no history yet, the leader has always been here
+            Arrays.fill(trailX, x);
+            Arrays.fill(trailY, y);
+            latestSample = (long) (time / SAMPLE_INTERVAL);
+            previousLeaderX = x;
+            previousLeaderY = y;
+            previousTime = time;
+        }
+    }
+
+    @Override
+    public void setLinkOffset(double x, double y) {
+        if (x == linkOffsetX && y == linkOffsetY) return;
+        linkOffsetX = x;
+        linkOffsetY = y;
+        moving = true;
+    }
+
+    @Override
+    public boolean advance(double deltaSeconds) {
+        if (!moving || latestSample < 0) return false;
+        time += deltaSeconds;
+        record();
+        dropRemoved();
+        int count = followers.size();
+        boolean easing = false;
+        double easingStep = Math.min(1, deltaSeconds * RANK_EASING_RATE);
+        for (int i = 0; i < count; i++) {
+            Follower<T> follower = followers.get(i);
+            double targetRank = count - i;
+            double rank = follower.rank + (targetRank - follower.rank) * easingStep;
+            if (Math.abs(targetRank - rank) < EASING_EPSILON) {
+                rank = targetRank;
+            } else {
+                easing = true;
+            }
+            follower.rank = rank;
+            double blend = follower.blend + (1 - follower.blend) * easingStep;
+            if (1 - blend < EASING_EPSILON) {
+                blend = 1;
+            } else {
+                easing = true;
+            }
+            follower.blend = blend;
+            double lag = rank * lagPerRank;
+            double pathX = sampleX(lag) + rank * linkOffsetX;
+            double pathY = sampleY(lag) + rank * linkOffsetY;
+            double x = follower.startX + (pathX - follower.startX) * blend;
+            double y = follower.startY + (pathY - follower.startY) * blend;
+            if (x == follower.x && y == follower.y) continue;
+            follower.x = x;
+            follower.y = y;
+            if (listener != null) {
+                listener.onFollowerMoved(follower.item, x, y);
+            }
+        }
+        // everyone has caught up once the oldest lag has passed since the leader stopped
+        moving = easing || time - lastMoveTime <= count * lagPerRank + SAMPLE_INTERVAL;
+        return moving;
+    }
+
+    private void dropRemoved() {
+        if (removedCount == 0) return;
+        int kept = 0;
+        for (int i = 0; i < followers.size(); i++) {
+            Follower<T> follower = followers.get(i);
+            if (!follower.removed) {
+                followers.set(kept++, follower);
+            }
+        }
+        followers.subList(kept, followers.size()).clear();
+        removedCount = 0;
+    }
+
+    private void record() {
+        long sample = latestSample + 1;
+        double sampleTime = sample * SAMPLE_INTERVAL;
+        double span = time - previousTime;
+        while (sampleTime <= time) {
+            double fraction = span > 0 ? (sampleTime - previousTime) / span : 1;
+            int index = (int) (sample & mask);
+            trailX[index] = previousLeaderX + (leaderX - previousLeaderX) * fraction;
+            trailY[index] = previousLeaderY + (leaderY - previousLeaderY) * fraction;
+            latestSample = sample;
+            sample++;
+            sampleTime = sample * SAMPLE_INTERVAL;
+        }
+        previousLeaderX = leaderX;
+        previousLeaderY = leaderY;
+        previousTime = time;
+    }
+
+    private double sampleX(double lag) {
+        return sample(trailX, leaderX, lag);
+    }
+
+    private double sampleY(double lag) {
+        return sample(trailY, leaderY, lag);
+    }
+
+    private double sample(double[] trail, double current, double lag) {
+        double position = (time - lag) / SAMPLE_INTERVAL;
+        if (position >= latestSample) {
+            // between the latest sample and now
+            double span = time / SAMPLE_INTERVAL - latestSample;
+            double fraction = span > 0 ? (position - latestSample) / span : 1;
+            double latest = trail[(int) (latestSample & mask)];
+            return latest + (current - latest) * fraction;
+        }
+        long oldest = Math.max(0, latestSample - mask);
+        if (position <= oldest) {
+            return trail[(int) (oldest & mask)];
+        }
+        long sample = (long) position;
+        double fraction = position - sample;
+        double from = trail[(int) (sample & mask)];
+        double to = trail[(int) ((sample + 1) & mask)];
+        return from + (to - from) * fraction;
+    }
+
+    private void ensureTrailCapacity() {
+        int needed = (int) Math.ceil((followers.size() + 1) * lagPerRank / SAMPLE_INTERVAL) + 2;
+        if (needed <= trailX.length) return;
+        int capacity = trailX.length;
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        double[] oldX = trailX;
+        double[] oldY = trailY;
+        int oldMask = mask;
+        allocateTrail(capacity);
+        if (latestSample < 0) return;
+        // re-insert the history at the positions of the larger ring
+        long oldest = Math.max(0, latestSample - oldMask);
+        for (long sample = oldest; sample <= latestSample; sample++) {
+            trailX[(int) (sample & mask)] = oldX[(int) (sample & oldMask)];
+            trailY[(int) (sample & mask)] = oldY[(int) (sample & oldMask)];
+        }
+        for (long sample = latestSample - mask; sample < oldest; sample++) {
+            if (sample < 0) continue;
+            trailX[(int) (sample & mask)] = oldX[(int) (oldest & oldMask)];
+            trailY[(int) (sample & mask)] = oldY[(int) (oldest & oldMask)];
+        }
+    }
+
+    private void allocateTrail(int capacity) {
+        trailX = new double[capacity];
+        trailY = new double[capacity];
+        mask = capacity - 1;
+    }
+}
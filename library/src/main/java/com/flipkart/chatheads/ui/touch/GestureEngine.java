@@ -0,0 +1,232 @@
+package com.flipkart.chatheads.ui.touch;
+
+/**
+ * The drag state machine of a chat head, without the view: the touch slop, moving with the
+ * finger, being captured by the close button within its attraction threshold, and the release
+ * velocity. Touch events come in as arrays of samples and everything the state machine decides is
+ * handed to a {@link Host}, so that it can be run and benchmarked on the JVM.
+ * <p>
+ * Positions are in screen coordinates. The chat head is moved by the offset of the finger from
+ * where it went down, added to where the chat head was at that time. Not thread safe.
+ */
+public class GestureEngine {
+
+    /**
+     * Same values as the actions of MotionEvent, so they can be passed on as they are
+     */
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+
+    public interface Host {
+        double getPositionX();
+
+        double getPositionY();
+
+        boolean canDrag();
+
+        boolean shouldShowCloseButton();
+
+        double getDistanceToCloseButton(float x, float y);
+
+        /**
+         * The touch went down. The chat head stops where it is and is no longer captured.
+         */
+        void onPress();
+
+        void onDraggingChanged(boolean dragging);
+
+        /**
+         * The chat head is dragged, following the finger, rather than held by the close button.
+         * Followed by {@link #moveTo(double, double)} or {@link #requestFrame()}.
+         */
+        void onFree();
+
+        /**
+         * The finger came within the attraction threshold of the close button, which now holds
+         * the chat head.
+         */
+        void onCaptured();
+
+        void moveTo(double x, double y);
+
+        /**
+         * Asks for {@link GestureEngine#onFrame(long)} to be called in the next frame
+         */
+        void requestFrame();
+
+        void showCloseButton();
+
+        void pointCloseButtonTo(float x, float y);
+
+        void hideCloseButton();
+
+        /**
+         * @param velocityX  in pixels per second, 0 unless the chat head was dragged
+         * @param velocityY  in pixels per second, 0 unless the chat head was dragged
+         * @param wasDragging false for a tap
+         */
+        void onRelease(int velocityX, int velocityY, boolean wasDragging);
+    }
+
+    private final Host host;
+    private final float touchSlop;
+    private final float closeAttractionThreshold;
+    private final TouchResampler touchResampler = new TouchResampler(TouchResampler.DEFAULT_CAPACITY);
+    private final VelocityEstimator velocityEstimator = new VelocityEstimator(VelocityEstimator.DEFAULT_CAPACITY);
+    private boolean resamplingEnabled = true;
+    private boolean resampling;
+    private float downX = -1;
+    private float downY = -1;
+    private double downPositionX;
+    private double downPositionY;
+    private boolean dragging;
+    private boolean captured;
+    /**
+     * True if the chat head was free on the last move it was dragged in, kept across touches
+     */
+    private boolean lastMoveFree;
+
+    /**
+     * @param touchSlop                distance the finger moves before a touch becomes a drag
+     * @param closeAttractionThreshold distance from the close button within which it captures
+     *                                 the chat head
+     */
+    public GestureEngine(Host host, float touchSlop, float closeAttractionThreshold) {
+        this.host = host;
+        this.touchSlop = touchSlop;
+        this.closeAttractionThreshold = closeAttractionThreshold;
+    }
+
+    /**
+     * Sets how drags follow the finger from the next touch on, see {@link TouchResampler}. Without
+     * resampling the chat head is moved on every event instead of on frames.
+     */
+    public void setTouchResampling(boolean enabled, int predictionMillis) {
+        resamplingEnabled = enabled;
+        touchResampler.setPredictionMillis(predictionMillis);
+    }
+
+    public boolean isResampling() {
+        return resampling;
+    }
+
+    public boolean isDragging() {
+        return dragging;
+    }
+
+    public boolean isCaptured() {
+        return captured;
+    }
+
+    /**
+     * @param action one of the actions of this class, others are ignored
+     * @param times  times of the samples, oldest first, the last being that of the event
+     * @param xs     screen positions of the samples
+     * @param ys     screen positions of the samples
+     * @param count  number of samples, at least 1
+     */
+    public void onTouchEvent(int action, long[] times, float[] xs, float[] ys, int count) {
+        int latest = count - 1;
+        float x = xs[latest];
+        float y = ys[latest];
+        switch (action) {
+            case ACTION_DOWN:
+                onDown(times[latest], x, y);
+                break;
+            case ACTION_MOVE:
+                for (int i = 0; i < count; i++) {
+                    addSample(times[i], xs[i], ys[i]);
+                }
+                onMove(x, y);
+                break;
+            case ACTION_UP:
+            case ACTION_CANCEL:
+                onUp(times[latest], x, y);
+                break;
+        }
+    }
+
+    /**
+     * Moves a free chat head to where the finger is at the time of the frame, while resampling.
+     */
+    public void onFrame(long frameTimeMillis) {
+        if (!resampling || !dragging || captured) return;
+        if (touchResampler.resample(frameTimeMillis)) {
+            host.moveTo(downPositionX + touchResampler.getX() - downX,
+                    downPositionY + touchResampler.getY() - downY);
+        }
+    }
+
+    private void onDown(long time, float x, float y) {
+        resampling = resamplingEnabled;
+        touchResampler.reset();
+        velocityEstimator.reset();
+        addSample(time, x, y);
+        captured = false;
+        downX = x;
+        downY = y;
+        downPositionX = host.getPositionX();
+        downPositionY = host.getPositionY();
+        host.onPress();
+    }
+
+    private void onMove(float x, float y) {
+        float offsetX = x - downX;
+        float offsetY = y - downY;
+        boolean showCloseButton = host.shouldShowCloseButton();
+        if (dragging || offsetX * offsetX + offsetY * offsetY > touchSlop * touchSlop) {
+            dragging = true;
+            host.onDraggingChanged(true);
+            if (showCloseButton) {
+                host.showCloseButton();
+            }
+        }
+        if (!dragging) return;
+        host.pointCloseButtonTo(x, y);
+        if (!host.canDrag()) return;
+        if (showCloseButton && host.getDistanceToCloseButton(x, y) < closeAttractionThreshold) {
+            captured = true;
+            lastMoveFree = false;
+            host.onCaptured();
+        } else {
+            captured = false;
+            lastMoveFree = true;
+            host.onFree();
+            if (resampling) {
+                host.requestFrame();
+            } else {
+                host.moveTo(downPositionX + offsetX, downPositionY + offsetY);
+            }
+            host.showCloseButton();
+        }
+    }
+
+    private void onUp(long time, float x, float y) {
+        resampling = false;
+        // released where the finger actually is
+        host.moveTo(downPositionX + x - downX, downPositionY + y - downY);
+        boolean wasDragging = dragging;
+        dragging = false;
+        int velocityX = 0;
+        int velocityY = 0;
+        if (wasDragging && host.canDrag()) {
+            // 0 if the finger was held still before being lifted
+            velocityEstimator.computeVelocity(time);
+            velocityX = (int) velocityEstimator.getVelocityX();
+            velocityY = (int) velocityEstimator.getVelocityY();
+        }
+        host.onRelease(velocityX, velocityY, wasDragging);
+        if (lastMoveFree && host.getDistanceToCloseButton(x, y) > closeAttractionThreshold) {
+            host.hideCloseButton();
+        }
+    }
+
+    private void addSample(long time, float x, float y) {
+        velocityEstimator.addSample(time, x, y);
+        if (resampling) {
+            touchResampler.addSample(time, x, y);
+        }
+    }
+}
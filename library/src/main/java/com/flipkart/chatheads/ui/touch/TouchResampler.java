@@ -0,0 +1,159 @@
+package com.flipkart.chatheads.ui.touch;
+
+/**
+ * Keeps the recent samples of a touch and tells where it was, or will be, at a given time. Touch
+ * is sampled at its own rate and delivered in batches, so the latest sample of a batch is usually
+ * a few milliseconds older than the frame it is drawn in, and consecutive frames see uneven
+ * moves. Resampling every frame at the frame time instead lets a dragged view track the finger
+ * evenly and with less lag.
+ * <p>
+ * Times between samples are interpolated. Past the latest sample the touch is extrapolated from
+ * the last two samples, by no more than half their interval plus the prediction, the way the
+ * platform resamples input. Not thread safe, and allocates nothing once created.
+ */
+public class TouchResampler {
+
+    public static final int DEFAULT_CAPACITY = 16;
+    /**
+     * Longest the platform extrapolates touch for
+     */
+    public static final int MAX_PREDICTION_MILLIS = 8;
+    /**
+     * Samples closer than this are too noisy to extrapolate from
+     */
+    private static final long MIN_EXTRAPOLATION_DELTA = 2;
+    /**
+     * Samples further apart than this, or a touch which has not moved for this long, are not
+     * extrapolated from, the finger has likely stopped
+     */
+    private static final long MAX_EXTRAPOLATION_DELTA = 20;
+
+    private final long[] times;
+    private final float[] xs;
+    private final float[] ys;
+    /**
+     * Index of the latest sample
+     */
+    private int last = -1;
+    private int count;
+    private int predictionMillis;
+    private float x;
+    private float y;
+
+    public TouchResampler(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Resampling needs at least two samples");
+        }
+        times = new long[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+    }
+
+    /**
+     * @param predictionMillis how far ahead of the time asked for the touch is resampled, to make
+     *                         up for the time a frame takes to be displayed. At most
+     *                         {@link #MAX_PREDICTION_MILLIS}.
+     */
+    public void setPredictionMillis(int predictionMillis) {
+        this.predictionMillis = Math.max(0, Math.min(predictionMillis, MAX_PREDICTION_MILLIS));
+    }
+
+    public int getPredictionMillis() {
+        return predictionMillis;
+    }
+
+    public void reset() {
+        last = -1;
+        count = 0;
+    }
+
+    public int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * Adds a sample. Samples must come in time order, one at the same time as the latest replaces
+     * it and older ones are ignored.
+     */
+    public void addSample(long timeMillis, float x, float y) {
+        if (count > 0) {
+            long latest = times[last];
+            if (timeMillis < latest) return;
+            if (timeMillis == latest) {
+                xs[last] = x;
+                ys[last] = y;
+                return;
+            }
+        }
+        last = (last + 1) % times.length;
+        times[last] = timeMillis;
+        xs[last] = x;
+        ys[last] = y;
+        if (count < times.length) count++;
+    }
+
+    /**
+     * Works out where the touch is at the given time plus the prediction, read with
+     * {@link #getX()} and {@link #getY()}.
+     *
+     * @return false if there are no samples
+     */
+    public boolean resample(long timeMillis) {
+        if (count == 0) return false;
+        long latestTime = times[last];
+        if (timeMillis + predictionMillis >= latestTime) {
+            extrapolate(timeMillis);
+            return true;
+        }
+        timeMillis += predictionMillis;
+        // the newest sample at or before the time, and the one after it
+        int after = last;
+        for (int i = 1; i < count; i++) {
+            int index = previous(after);
+            if (times[index] <= timeMillis) {
+                interpolate(index, after, timeMillis);
+                return true;
+            }
+            after = index;
+        }
+        // older than every sample kept
+        x = xs[after];
+        y = ys[after];
+        return true;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    private void extrapolate(long timeMillis) {
+        x = xs[last];
+        y = ys[last];
+        if (count < 2) return;
+        int before = previous(last);
+        long latestTime = times[last];
+        long delta = latestTime - times[before];
+        if (delta < MIN_EXTRAPOLATION_DELTA || delta > MAX_EXTRAPOLATION_DELTA
+                || timeMillis - latestTime > MAX_EXTRAPOLATION_DELTA) {
+            return;
+        }
+        long ahead = Math.min(timeMillis + predictionMillis - latestTime, delta / 2 + predictionMillis);
+        float fraction = (float) ahead / delta;
+        x += (xs[last] - xs[before]) * fraction;
+        y += (ys[last] - ys[before]) * fraction;
+    }
+
+    private void interpolate(int before, int after, long timeMillis) {
+        float fraction = (float) (timeMillis - times[before]) / (times[after] - times[before]);
+        x = xs[before] + (xs[after] - xs[before]) * fraction;
+        y = ys[before] + (ys[after] - ys[before]) * fraction;
+    }
+
+    private int previous(int index) {
+        return index == 0 ? times.length - 1 : index - 1;
+    }
+}
@@ -0,0 +1,159 @@
+package com.flipkart.chatheads.ui.touch;
+
+/**
+ * Estimates the velocity of a touch from its recent samples, by fitting a quadratic to each axis
+ * with least squares and taking its slope at the latest sample, like the default strategy of the
+ * platform's VelocityTracker. Only samples within {@link #HORIZON_MILLIS} of the latest one are
+ * fitted, and a touch which paused for {@link #ASSUME_STOPPED_MILLIS} starts over.
+ * <p>
+ * Samples are kept in a ring buffer, and the fit is only done when the velocity is asked for, in
+ * one pass over the samples within the horizon. Nothing is allocated once created. Not thread
+ * safe.
+ */
+public class VelocityEstimator {
+
+    public static final int DEFAULT_CAPACITY = 20;
+    /**
+     * Age relative to the latest sample from which samples are left out of the fit
+     */
+    public static final long HORIZON_MILLIS = 100;
+    /**
+     * Time without samples after which the touch is taken to have stopped
+     */
+    public static final long ASSUME_STOPPED_MILLIS = 40;
+
+    private final long[] times;
+    private final float[] xs;
+    private final float[] ys;
+    /**
+     * Index of the latest sample
+     */
+    private int last = -1;
+    private int count;
+    private double velocityX;
+    private double velocityY;
+
+    public VelocityEstimator(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        times = new long[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+    }
+
+    public void reset() {
+        last = -1;
+        count = 0;
+        velocityX = 0;
+        velocityY = 0;
+    }
+
+    public int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * Adds a sample. Samples must come in time order, one at the same time as the latest replaces
+     * it and older ones are ignored.
+     */
+    public void addSample(long timeMillis, float x, float y) {
+        if (count > 0) {
+            long latest = times[last];
+            if (timeMillis < latest) return;
+            if (timeMillis == latest) {
+                xs[last] = x;
+                ys[last] = y;
+                return;
+            }
+            if (timeMillis - latest >= ASSUME_STOPPED_MILLIS) {
+                // a new movement, the old samples would only drag its velocity down
+                count = 0;
+            }
+        }
+        last = (last + 1) % times.length;
+        times[last] = timeMillis;
+        xs[last] = x;
+        ys[last] = y;
+        if (count < times.length) count++;
+    }
+
+    /**
+     * Works out the velocity at the given time, read with {@link #getVelocityX()} and
+     * {@link #getVelocityY()}. It is 0 if the touch has stopped by then.
+     *
+     * @param timeMillis time of the last event of the touch, usually the one which ended it
+     */
+    public void computeVelocity(long timeMillis) {
+        velocityX = 0;
+        velocityY = 0;
+        if (count < 2 || timeMillis - times[last] >= ASSUME_STOPPED_MILLIS) return;
+        // times relative to the latest sample, in milliseconds to keep the sums well scaled
+        long latest = times[last];
+        double s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+        double x0 = 0, x1 = 0, x2 = 0;
+        double y0 = 0, y1 = 0, y2 = 0;
+        int n = 0;
+        int index = last;
+        while (n < count) {
+            double t = times[index] - latest;
+            if (-t > HORIZON_MILLIS) break;
+            double t2 = t * t;
+            s1 += t;
+            s2 += t2;
+            s3 += t2 * t;
+            s4 += t2 * t2;
+            x0 += xs[index];
+            x1 += xs[index] * t;
+            x2 += xs[index] * t2;
+            y0 += ys[index];
+            y1 += ys[index] * t;
+            y2 += ys[index] * t2;
+            n++;
+            index = index == 0 ? times.length - 1 : index - 1;
+        }
+        if (n < 2) return;
+        double s0 = n;
+        // per millisecond, reported per second
+        velocityX = 1000 * slope(s0, s1, s2, s3, s4, x0, x1, x2, n);
+        velocityY = 1000 * slope(s0, s1, s2, s3, s4, y0, y1, y2, n);
+    }
+
+    /**
+     * @return horizontal velocity in pixels per second, as of the last
+     * {@link #computeVelocity(long)}
+     */
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    /**
+     * @return vertical velocity in pixels per second, as of the last
+     * {@link #computeVelocity(long)}
+     */
+    public double getVelocityY() {
+        return velocityY;
+    }
+
+    /**
+     * Slope at t = 0 of the least squares quadratic through the samples, from the sums of
+     * {@code t^k} and {@code v * t^k}. Falls back to a line with fewer than three samples or
+     * samples which do not determine a quadratic.
+     */
+    private static double slope(double s0, double s1, double s2, double s3, double s4,
+            double v0, double v1, double v2, int n) {
+        if (n >= 3) {
+            // Cramer's rule on the normal equations, for the linear coefficient only
+            double determinant = s0 * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s3 * s2)
+                    + s2 * (s1 * s3 - s2 * s2);
+            if (Math.abs(determinant) > 1e-9) {
+                double linear = s0 * (v1 * s4 - s3 * v2) - v0 * (s1 * s4 - s3 * s2)
+                        + s2 * (s1 * v2 - v1 * s2);
+                return linear / determinant;
+            }
+        }
+        double denominator = s0 * s2 - s1 * s1;
+        if (denominator == 0) return 0;
+        return (s0 * v1 - s1 * v0) / denominator;
+    }
+}
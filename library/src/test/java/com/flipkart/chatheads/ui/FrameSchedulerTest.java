@@ -0,0 +1,44 @@
+package com.flipkart.chatheads.ui;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameSchedulerTest {
+
+    private final FrameScheduler scheduler = FrameScheduler.getInstance();
+    private final Object first = new Object();
+    private final Object second = new Object();
+
+    @After
+    public void tearDown() {
+        scheduler.removeMaxPhysicsRate(first);
+        scheduler.removeMaxPhysicsRate(second);
+        scheduler.setMaxPhysicsRate(FrameScheduler.DEFAULT_MAX_PHYSICS_RATE);
+    }
+
+    @Test
+    public void highestRequestedRateApplies() {
+        scheduler.requestMaxPhysicsRate(first, 120);
+        scheduler.requestMaxPhysicsRate(second, 30);
+        assertEquals(120, scheduler.getMaxPhysicsRate());
+
+        // replaces the earlier request of the same owner
+        scheduler.requestMaxPhysicsRate(first, 45);
+        assertEquals(45, scheduler.getMaxPhysicsRate());
+    }
+
+    @Test
+    public void removedRequestNoLongerApplies() {
+        scheduler.setMaxPhysicsRate(90);
+        scheduler.requestMaxPhysicsRate(first, 120);
+        scheduler.requestMaxPhysicsRate(second, 30);
+        scheduler.removeMaxPhysicsRate(first);
+        assertEquals(30, scheduler.getMaxPhysicsRate());
+
+        // the default rate is back once nothing requests one
+        scheduler.removeMaxPhysicsRate(second);
+        assertEquals(90, scheduler.getMaxPhysicsRate());
+    }
+}
@@ -0,0 +1,187 @@
+package com.flipkart.chatheads.ui.physics;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SimpleSpringListener;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.facebook.rebound.SpringLooper;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Compares the per-frame cost of {@link SpringBatch} with Rebound springs doing the same work. On
+ * both sides a chain of heads follows a first head that jumps to a new target every 30 frames, at
+ * 60fps. At the start of every frame each head is given the position of the one in front of it as
+ * its target, so both sides step the same heads in every frame; the number of heads that moved is
+ * reported for each side to check this. Rebound takes two springs and two update callbacks per
+ * head, the batch one slot and one callback.
+ * <p>
+ * Each side is measured a few times, alternating, and the median is reported. Lives with the tests
+ * so that it is not shipped. Run it on the JVM through {@link #main(String[])}.
+ */
+public class SpringBatchBenchmark {
+
+    public static final int[] DEFAULT_HEAD_COUNTS = {5, 50, 500};
+
+    private static final double FRAME_MILLIS = 1000.0 / 60;
+    private static final int WARMUP_FRAMES = 600;
+    private static final int MEASURED_FRAMES = 600;
+    private static final int RUNS = 5;
+    private static final SpringConfig CONFIG = SpringConfig.fromOrigamiTensionAndFriction(70, 10);
+
+    /**
+     * Written with the results of the callbacks so that the work can't be optimized away
+     */
+    private static volatile double blackhole;
+
+    public static class Result {
+        public final int headCount;
+        public final double reboundNanosPerFrame;
+        public final double batchNanosPerFrame;
+        public final double reboundMovedPerFrame;
+        public final double batchMovedPerFrame;
+
+        Result(int headCount, double reboundNanosPerFrame, double batchNanosPerFrame,
+                double reboundMovedPerFrame, double batchMovedPerFrame) {
+            this.headCount = headCount;
+            this.reboundNanosPerFrame = reboundNanosPerFrame;
+            this.batchNanosPerFrame = batchNanosPerFrame;
+            this.reboundMovedPerFrame = reboundMovedPerFrame;
+            this.batchMovedPerFrame = batchMovedPerFrame;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%4d heads: rebound %9.1f us/frame (%5.1f moved), batch %9.1f us/frame (%5.1f moved), %.1fx",
+                    headCount, reboundNanosPerFrame / 1000, reboundMovedPerFrame,
+                    batchNanosPerFrame / 1000, batchMovedPerFrame,
+                    reboundNanosPerFrame / batchNanosPerFrame);
+        }
+    }
+
+    public static Result[] run(int... headCounts) {
+        Result[] results = new Result[headCounts.length];
+        for (int i = 0; i < headCounts.length; i++) {
+            int headCount = headCounts[i];
+            double[] moved = new double[2];
+            runRebound(headCount, WARMUP_FRAMES, moved);
+            runBatch(headCount, WARMUP_FRAMES, moved);
+            double[] rebound = new double[RUNS];
+            double[] batch = new double[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                rebound[run] = runRebound(headCount, MEASURED_FRAMES, moved);
+                batch[run] = runBatch(headCount, MEASURED_FRAMES, moved);
+            }
+            double[] reboundMoved = new double[1];
+            double[] batchMoved = new double[1];
+            runRebound(headCount, MEASURED_FRAMES, reboundMoved);
+            runBatch(headCount, MEASURED_FRAMES, batchMoved);
+            results[i] = new Result(headCount, median(rebound), median(batch),
+                    reboundMoved[0] / MEASURED_FRAMES, batchMoved[0] / MEASURED_FRAMES);
+        }
+        return results;
+    }
+
+    public static void main(String[] args) {
+        for (Result result : run(DEFAULT_HEAD_COUNTS)) {
+            System.out.println(result);
+        }
+    }
+
+    private static double targetFor(int frame) {
+        return (frame / 30) % 2 == 0 ? 0 : 1000;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * @param moved the number of heads moved over all frames is added to its first element
+     * @return nanoseconds per frame
+     */
+    private static double runRebound(int headCount, int frames, double[] moved) {
+        BaseSpringSystem springSystem = new BaseSpringSystem(new SpringLooper() {
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop() {
+            }
+        });
+        final Spring[] xSprings = new Spring[headCount];
+        final Spring[] ySprings = new Spring[headCount];
+        final double[] sink = new double[1];
+        final int[] updates = new int[1];
+        SimpleSpringListener listener = new SimpleSpringListener() {
+            @Override
+            public void onSpringUpdate(Spring spring) {
+                sink[0] += spring.getCurrentValue();
+                updates[0]++;
+            }
+        };
+        for (int i = 0; i < headCount; i++) {
+            xSprings[i] = springSystem.createSpring().setSpringConfig(CONFIG).addListener(listener);
+            ySprings[i] = springSystem.createSpring().setSpringConfig(CONFIG).addListener(listener);
+        }
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            double target = targetFor(frame);
+            // from the back, so every head gets where the one in front was at the end of the last frame
+            for (int i = headCount - 1; i > 0; i--) {
+                xSprings[i].setEndValue(xSprings[i - 1].getCurrentValue());
+                ySprings[i].setEndValue(ySprings[i - 1].getCurrentValue());
+            }
+            xSprings[0].setEndValue(target);
+            ySprings[0].setEndValue(target);
+            springSystem.loop(FRAME_MILLIS);
+        }
+        long elapsed = System.nanoTime() - start;
+        for (int i = 0; i < headCount; i++) {
+            xSprings[i].destroy();
+            ySprings[i].destroy();
+        }
+        blackhole = sink[0];
+        // both springs of a head move together
+        moved[0] += updates[0] / 2.0;
+        return (double) elapsed / frames;
+    }
+
+    /**
+     * @param moved the number of heads moved over all frames is added to its first element
+     * @return nanoseconds per frame
+     */
+    private static double runBatch(int headCount, int frames, double[] moved) {
+        SpringBatch batch = new SpringBatch(headCount);
+        final double[] sink = new double[1];
+        final int[] updates = new int[1];
+        batch.setListener(new SpringBatch.Listener() {
+            @Override
+            public void onSpringBatchUpdate(SpringBatch batch, int index) {
+                sink[0] += batch.getX(index) + batch.getY(index);
+                updates[0]++;
+            }
+        });
+        for (int i = 0; i < headCount; i++) {
+            batch.add(0, 0, CONFIG.tension, CONFIG.friction);
+        }
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            double target = targetFor(frame);
+            for (int i = headCount - 1; i > 0; i--) {
+                batch.setTarget(i, batch.getX(i - 1), batch.getY(i - 1));
+            }
+            batch.setTarget(0, target, target);
+            batch.advance(FRAME_MILLIS / 1000);
+        }
+        long elapsed = System.nanoTime() - start;
+        blackhole = sink[0];
+        moved[0] += updates[0];
+        return (double) elapsed / frames;
+    }
+}
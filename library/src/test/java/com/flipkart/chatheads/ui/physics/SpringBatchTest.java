@@ -0,0 +1,96 @@
+package com.flipkart.chatheads.ui.physics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpringBatchTest {
+
+    private static final double TENSION = 339;
+    private static final double FRICTION = 31;
+    private static final double FRAME_SECONDS = 1.0 / 60;
+
+    private SpringBatch batch;
+    private final List<Integer> updates = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        batch = new SpringBatch(2);
+        batch.setListener(new SpringBatch.Listener() {
+            @Override
+            public void onSpringBatchUpdate(SpringBatch batch, int index) {
+                updates.add(index);
+            }
+        });
+    }
+
+    @Test
+    public void stepFollowsClosedFormPath() {
+        int slot = batch.add(0, 0, TENSION, FRICTION);
+        batch.setTarget(slot, 100, -50);
+        AnalyticSpringIntegrator path = new AnalyticSpringIntegrator();
+        path.reset(0, 0, 100, TENSION, FRICTION);
+        for (int frame = 1; frame <= 10; frame++) {
+            batch.advance(FRAME_SECONDS);
+            assertEquals(path.getPosition(frame * FRAME_SECONDS), batch.getX(slot), 1e-6);
+            assertEquals(-path.getPosition(frame * FRAME_SECONDS) / 2, batch.getY(slot), 1e-6);
+        }
+    }
+
+    @Test
+    public void settledSlotsAreNotStepped() {
+        int slot = batch.add(0, 0, TENSION, FRICTION);
+        batch.setTarget(slot, 10, 10);
+        while (batch.advance(FRAME_SECONDS)) {
+            // settle
+        }
+        assertEquals(10, batch.getX(slot), 0);
+        updates.clear();
+        // within the rest threshold
+        batch.setTarget(slot, 10.001, 10);
+        assertTrue(batch.isAtRest());
+        assertFalse(batch.advance(FRAME_SECONDS));
+        assertTrue(updates.isEmpty());
+    }
+
+    @Test
+    public void settledFollowerWakesWhenLeaderMoves() {
+        int leader = batch.add(0, 0, TENSION, FRICTION);
+        int follower = batch.add(0, 0, TENSION, FRICTION);
+        batch.setLeader(follower, leader);
+        batch.advance(FRAME_SECONDS);
+        assertTrue(batch.isAtRest());
+
+        batch.setTarget(leader, 50, 0);
+        batch.advance(FRAME_SECONDS);
+        assertTrue(updates.contains(follower));
+        while (batch.advance(FRAME_SECONDS)) {
+            // settle
+        }
+        assertEquals(50, batch.getX(follower), 0);
+    }
+
+    @Test
+    public void removedLeaderIsReplaced() {
+        int front = batch.add(0, 0, TENSION, FRICTION);
+        int middle = batch.add(0, 0, TENSION, FRICTION);
+        int back = batch.add(0, 0, TENSION, FRICTION);
+        batch.setLeader(middle, front);
+        batch.setLeader(back, middle);
+        batch.setLeader(back, front);
+        batch.remove(middle);
+
+        batch.setTarget(front, 0, 80);
+        while (batch.advance(FRAME_SECONDS)) {
+            // settle
+        }
+        assertEquals(80, batch.getY(back), 0);
+        assertEquals(middle, batch.add(0, 0, TENSION, FRICTION));
+    }
+}
@@ -0,0 +1,188 @@
+package com.flipkart.chatheads.ui.touch;
+
+import java.util.Locale;
+
+/**
+ * Measures the cost of {@link GestureEngine} per touch event, with and without resampling. Each
+ * gesture goes down, is dragged in a curve past the touch slop and towards the close button with
+ * touch sampled at 240Hz and delivered at 60Hz, and is flung.
+ * <p>
+ * Lives with the tests so that it is not shipped. Run it on the JVM through
+ * {@link #main(String[])}.
+ */
+public class GestureEngineBenchmark {
+
+    public static final int[] DEFAULT_SAMPLES_PER_EVENT = {1, 4, 16};
+
+    private static final int MOVES_PER_GESTURE = 60;
+    private static final double FRAME_MILLIS = 1000.0 / 60;
+    private static final int WARMUP_GESTURES = 2000;
+    private static final int MEASURED_GESTURES = 5000;
+
+    /**
+     * Written with the results of the callbacks so that the work can't be optimized away
+     */
+    private static volatile double blackhole;
+
+    public static class Result {
+        public final int samplesPerEvent;
+        public final double directNanosPerEvent;
+        public final double resampledNanosPerEvent;
+
+        Result(int samplesPerEvent, double directNanosPerEvent, double resampledNanosPerEvent) {
+            this.samplesPerEvent = samplesPerEvent;
+            this.directNanosPerEvent = directNanosPerEvent;
+            this.resampledNanosPerEvent = resampledNanosPerEvent;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%3d samples/event: direct %7.1f ns/event, resampled %7.1f ns/event",
+                    samplesPerEvent, directNanosPerEvent, resampledNanosPerEvent);
+        }
+    }
+
+    public static Result[] run(int... samplesPerEvent) {
+        Result[] results = new Result[samplesPerEvent.length];
+        for (int i = 0; i < samplesPerEvent.length; i++) {
+            int samples = samplesPerEvent[i];
+            run(samples, false, WARMUP_GESTURES);
+            run(samples, true, WARMUP_GESTURES);
+            double direct = run(samples, false, MEASURED_GESTURES);
+            double resampled = run(samples, true, MEASURED_GESTURES);
+            results[i] = new Result(samples, direct, resampled);
+        }
+        return results;
+    }
+
+    public static void main(String[] args) {
+        for (Result result : run(DEFAULT_SAMPLES_PER_EVENT)) {
+            System.out.println(result);
+        }
+    }
+
+    /**
+     * @return nanoseconds per touch event, frames included
+     */
+    private static double run(int samplesPerEvent, boolean resampling, int gestures) {
+        SinkHost host = new SinkHost();
+        GestureEngine engine = new GestureEngine(host, 8, 150);
+        engine.setTouchResampling(resampling, 4);
+        long[] times = new long[samplesPerEvent];
+        float[] xs = new float[samplesPerEvent];
+        float[] ys = new float[samplesPerEvent];
+        double sampleMillis = FRAME_MILLIS / samplesPerEvent;
+        int events = 0;
+        long start = System.nanoTime();
+        for (int gesture = 0; gesture < gestures; gesture++) {
+            long time = gesture * 10000L;
+            fill(times, xs, ys, 0, time, 0);
+            engine.onTouchEvent(GestureEngine.ACTION_DOWN, times, xs, ys, 1);
+            double elapsed = 0;
+            for (int move = 0; move < MOVES_PER_GESTURE; move++) {
+                for (int i = 0; i < samplesPerEvent; i++) {
+                    elapsed += sampleMillis;
+                    fill(times, xs, ys, i, time, elapsed);
+                }
+                engine.onTouchEvent(GestureEngine.ACTION_MOVE, times, xs, ys, samplesPerEvent);
+                engine.onFrame(time + (long) elapsed + 4);
+            }
+            fill(times, xs, ys, 0, time, elapsed);
+            engine.onTouchEvent(GestureEngine.ACTION_UP, times, xs, ys, 1);
+            events += MOVES_PER_GESTURE + 2;
+        }
+        long total = System.nanoTime() - start;
+        blackhole = host.sink;
+        return (double) total / events;
+    }
+
+    private static void fill(long[] times, float[] xs, float[] ys, int index, long start,
+            double elapsed) {
+        times[index] = start + (long) elapsed;
+        xs[index] = (float) (elapsed * 1.5);
+        ys[index] = (float) (200 * Math.sin(elapsed / 300));
+    }
+
+    private static class SinkHost implements GestureEngine.Host {
+        double x;
+        double y;
+        double sink;
+
+        @Override
+        public double getPositionX() {
+            return x;
+        }
+
+        @Override
+        public double getPositionY() {
+            return y;
+        }
+
+        @Override
+        public boolean canDrag() {
+            return true;
+        }
+
+        @Override
+        public boolean shouldShowCloseButton() {
+            return true;
+        }
+
+        @Override
+        public double getDistanceToCloseButton(float touchX, float touchY) {
+            double dx = touchX - 1500;
+            double dy = touchY - 100;
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+
+        @Override
+        public void onPress() {
+            sink++;
+        }
+
+        @Override
+        public void onDraggingChanged(boolean dragging) {
+            sink++;
+        }
+
+        @Override
+        public void onFree() {
+            sink++;
+        }
+
+        @Override
+        public void onCaptured() {
+            sink--;
+        }
+
+        @Override
+        public void moveTo(double x, double y) {
+            sink += x + y;
+        }
+
+        @Override
+        public void requestFrame() {
+            sink++;
+        }
+
+        @Override
+        public void showCloseButton() {
+            sink++;
+        }
+
+        @Override
+        public void pointCloseButtonTo(float x, float y) {
+            sink += x - y;
+        }
+
+        @Override
+        public void hideCloseButton() {
+            sink++;
+        }
+
+        @Override
+        public void onRelease(int velocityX, int velocityY, boolean wasDragging) {
+            sink += velocityX + velocityY;
+        }
+    }
+}
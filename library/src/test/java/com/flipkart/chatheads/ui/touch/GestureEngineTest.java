@@ -0,0 +1,240 @@
+package com.flipkart.chatheads.ui.touch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GestureEngineTest {
+
+    private static final float TOUCH_SLOP = 8;
+    private static final float CLOSE_ATTRACTION_THRESHOLD = 50;
+    /**
+     * Where the chat head is when the touch goes down
+     */
+    private static final double START_X = 100;
+    private static final double START_Y = 200;
+    /**
+     * Horizontal position of the close button, on the line y = 0 the touches move along
+     */
+    private static final float CLOSE_BUTTON_X = 300;
+
+    private FakeHost host;
+    private GestureEngine engine;
+
+    @Before
+    public void setUp() {
+        host = new FakeHost();
+        engine = new GestureEngine(host, TOUCH_SLOP, CLOSE_ATTRACTION_THRESHOLD);
+        engine.setTouchResampling(false, 0);
+    }
+
+    @Test
+    public void staysPressedWithinSlopThenStartsDrag() {
+        down(0, 0, 0);
+        move(10, 3, 4);
+        assertFalse(engine.isDragging());
+        assertEquals(Arrays.asList("press"), host.calls);
+
+        host.calls.clear();
+        move(20, 30, 0);
+        assertTrue(engine.isDragging());
+        assertEquals(Arrays.asList("dragging true", "show", "point 30.0,0.0", "free",
+                "move 130.0,200.0", "show"), host.calls);
+    }
+
+    @Test
+    public void capturedWithinThresholdAndReleasedCaptured() {
+        down(0, 0, 0);
+        move(10, 200, 0);
+        assertEquals("free", host.state);
+        move(20, CLOSE_BUTTON_X - CLOSE_ATTRACTION_THRESHOLD + 1, 0);
+        assertTrue(engine.isCaptured());
+        assertEquals("captured", host.state);
+
+        host.calls.clear();
+        up(30, CLOSE_BUTTON_X - CLOSE_ATTRACTION_THRESHOLD + 1, 0);
+        assertEquals("captured", host.releaseState);
+        assertTrue(host.releasedDragging);
+        // the close button keeps the chat head, it is not hidden
+        assertFalse(host.calls.contains("hide"));
+    }
+
+    @Test
+    public void freeReleaseHidesCloseButton() {
+        down(0, 0, 0);
+        move(10, 40, 0);
+        move(20, 80, 0);
+        host.calls.clear();
+        up(30, 80, 0);
+        assertEquals(Arrays.asList("move 180.0,200.0", "release", "hide"), host.calls);
+        assertEquals("free", host.releaseState);
+        assertFalse(engine.isDragging());
+    }
+
+    @Test
+    public void tapReleasesWithoutVelocity() {
+        down(0, 0, 0);
+        move(10, 2, 2);
+        up(20, 2, 2);
+        assertFalse(host.releasedDragging);
+        assertEquals(0, host.releaseVelocityX);
+        assertEquals(0, host.releaseVelocityY);
+    }
+
+    @Test
+    public void releaseVelocityComesFromAllSamples() {
+        down(0, 0, 0);
+        // 2 pixels per millisecond right and 1 up, two samples batched into each move
+        long[] times = new long[2];
+        float[] xs = new float[2];
+        float[] ys = new float[2];
+        for (long t = 8; t <= 64; t += 8) {
+            times[0] = t - 4;
+            xs[0] = 2 * (t - 4);
+            ys[0] = -(t - 4);
+            times[1] = t;
+            xs[1] = 2 * t;
+            ys[1] = -t;
+            engine.onTouchEvent(GestureEngine.ACTION_MOVE, times, xs, ys, 2);
+        }
+        up(64, 128, -64);
+        assertEquals(2000, host.releaseVelocityX);
+        assertEquals(-1000, host.releaseVelocityY);
+    }
+
+    @Test
+    public void resampledDragMovesOnFrames() {
+        engine.setTouchResampling(true, 0);
+        down(0, 0, 0);
+        move(8, 16, 0);
+        move(16, 32, 0);
+        assertTrue(engine.isResampling());
+        assertTrue(host.calls.contains("frame"));
+        assertFalse(host.calls.contains("move 132.0,200.0"));
+
+        host.calls.clear();
+        // between the two samples
+        engine.onFrame(12);
+        assertEquals(Arrays.asList("move 124.0,200.0"), host.calls);
+
+        up(20, 32, 0);
+        assertFalse(engine.isResampling());
+        host.calls.clear();
+        engine.onFrame(24);
+        assertTrue(host.calls.isEmpty());
+    }
+
+    private void down(long time, float x, float y) {
+        event(GestureEngine.ACTION_DOWN, time, x, y);
+    }
+
+    private void move(long time, float x, float y) {
+        event(GestureEngine.ACTION_MOVE, time, x, y);
+    }
+
+    private void up(long time, float x, float y) {
+        event(GestureEngine.ACTION_UP, time, x, y);
+    }
+
+    private void event(int action, long time, float x, float y) {
+        engine.onTouchEvent(action, new long[]{time}, new float[]{x}, new float[]{y}, 1);
+    }
+
+    private static class FakeHost implements GestureEngine.Host {
+        final List<String> calls = new ArrayList<>();
+        String state;
+        String releaseState;
+        boolean releasedDragging;
+        int releaseVelocityX;
+        int releaseVelocityY;
+
+        @Override
+        public double getPositionX() {
+            return START_X;
+        }
+
+        @Override
+        public double getPositionY() {
+            return START_Y;
+        }
+
+        @Override
+        public boolean canDrag() {
+            return true;
+        }
+
+        @Override
+        public boolean shouldShowCloseButton() {
+            return true;
+        }
+
+        @Override
+        public double getDistanceToCloseButton(float x, float y) {
+            return Math.hypot(x - CLOSE_BUTTON_X, y);
+        }
+
+        @Override
+        public void onPress() {
+            state = "free";
+            calls.add("press");
+        }
+
+        @Override
+        public void onDraggingChanged(boolean dragging) {
+            calls.add("dragging " + dragging);
+        }
+
+        @Override
+        public void onFree() {
+            state = "free";
+            calls.add("free");
+        }
+
+        @Override
+        public void onCaptured() {
+            state = "captured";
+            calls.add("captured");
+        }
+
+        @Override
+        public void moveTo(double x, double y) {
+            calls.add("move " + x + "," + y);
+        }
+
+        @Override
+        public void requestFrame() {
+            calls.add("frame");
+        }
+
+        @Override
+        public void showCloseButton() {
+            calls.add("show");
+        }
+
+        @Override
+        public void pointCloseButtonTo(float x, float y) {
+            calls.add("point " + x + "," + y);
+        }
+
+        @Override
+        public void hideCloseButton() {
+            calls.add("hide");
+        }
+
+        @Override
+        public void onRelease(int velocityX, int velocityY, boolean wasDragging) {
+            releaseState = state;
+            releasedDragging = wasDragging;
+            releaseVelocityX = velocityX;
+            releaseVelocityY = velocityY;
+            calls.add("release");
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.flipkart.chatheads.ui.touch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class VelocityEstimatorTest {
+
+    private static final double DELTA = 1e-6;
+
+    private VelocityEstimator estimator;
+
+    @Before
+    public void setUp() {
+        estimator = new VelocityEstimator(VelocityEstimator.DEFAULT_CAPACITY);
+    }
+
+    @Test
+    public void constantVelocityGivesExactSlope() {
+        // 1.5 and -0.5 pixels per millisecond
+        for (long t = 0; t <= 80; t += 8) {
+            estimator.addSample(t, 1.5f * t, -0.5f * t);
+        }
+        estimator.computeVelocity(80);
+        assertEquals(1500, estimator.getVelocityX(), DELTA);
+        assertEquals(-500, estimator.getVelocityY(), DELTA);
+    }
+
+    @Test
+    public void quadraticMotionGivesSlopeAtLatestSample() {
+        // x = 2t - 0.005t^2, slope 2 - 0.01t pixels per millisecond
+        for (long t = 0; t <= 96; t += 8) {
+            estimator.addSample(t, (float) (2 * t - 0.005 * t * t), 0);
+        }
+        estimator.computeVelocity(96);
+        assertEquals(1040, estimator.getVelocityX(), 1e-2);
+        assertEquals(0, estimator.getVelocityY(), DELTA);
+    }
+
+    @Test
+    public void samplesOutsideHorizonAreIgnored() {
+        // a fast move long ago, then a slow one within the horizon
+        estimator.addSample(0, 0, 0);
+        estimator.addSample(30, 300, 0);
+        for (long t = 60; t <= 160; t += 10) {
+            estimator.addSample(t, 300 + (t - 60) * 0.2f, 0);
+        }
+        estimator.computeVelocity(160);
+        assertEquals(200, estimator.getVelocityX(), 1e-2);
+    }
+
+    @Test
+    public void twoSamplesFallBackToLine() {
+        estimator.addSample(0, 10, 20);
+        estimator.addSample(10, 20, 0);
+        estimator.computeVelocity(10);
+        assertEquals(1000, estimator.getVelocityX(), DELTA);
+        assertEquals(-2000, estimator.getVelocityY(), DELTA);
+    }
+
+    @Test
+    public void singleSampleGivesZero() {
+        estimator.addSample(0, 10, 20);
+        estimator.computeVelocity(0);
+        assertEquals(0, estimator.getVelocityX(), DELTA);
+        assertEquals(0, estimator.getVelocityY(), DELTA);
+    }
+
+    @Test
+    public void pauseStartsNewMovement() {
+        for (long t = 0; t <= 40; t += 10) {
+            estimator.addSample(t, 5 * t, 0);
+        }
+        // the finger rests, then moves the other way
+        estimator.addSample(40 + VelocityEstimator.ASSUME_STOPPED_MILLIS, 200, 0);
+        assertEquals(1, estimator.getSampleCount());
+        estimator.addSample(90, 190, 0);
+        estimator.computeVelocity(90);
+        assertEquals(-1000, estimator.getVelocityX(), DELTA);
+    }
+
+    @Test
+    public void releaseAfterHoldingStillGivesZero() {
+        for (long t = 0; t <= 40; t += 10) {
+            estimator.addSample(t, 5 * t, 5 * t);
+        }
+        estimator.computeVelocity(40 + VelocityEstimator.ASSUME_STOPPED_MILLIS);
+        assertEquals(0, estimator.getVelocityX(), DELTA);
+        assertEquals(0, estimator.getVelocityY(), DELTA);
+    }
+
+    @Test
+    public void resetDropsSamples() {
+        estimator.addSample(0, 0, 0);
+        estimator.addSample(10, 10, 10);
+        estimator.reset();
+        assertEquals(0, estimator.getSampleCount());
+        estimator.computeVelocity(10);
+        assertEquals(0, estimator.getVelocityX(), DELTA);
+    }
+}